@@ -1,14 +1,35 @@
 package com.danodic.jao.action;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
 
 import org.reflections.Reflections;
 import org.reflections.util.ClasspathHelper;
 import org.reflections.util.ConfigurationBuilder;
+import org.reflections.util.FilterBuilder;
 
 import com.danodic.jao.exceptions.CannotFindJaoActionException;
 import com.danodic.jao.exceptions.CannotFindJaoInitializerException;
@@ -16,59 +37,433 @@ import com.danodic.jao.exceptions.CannotFindJaoLibraryException;
 import com.danodic.jao.exceptions.CannotInstantiateJaoActionException;
 import com.danodic.jao.model.ActionModel;
 
+/**
+ * Keeps the libraries of actions and initializers and creates instances of
+ * them by name.
+ *
+ * The factory can be used from many threads at once. The initialization and
+ * the first lookup of each library happen once, under a lock, and all lookups
+ * after that only read from concurrent maps without locking.
+ */
 public class ActionFactory {
 
-    private static Boolean factoryInitialized = false;
+    private static final Logger LOGGER = Logger.getLogger(ActionFactory.class.getName());
+
+    private static final Object LOCK = new Object();
+
+    private static volatile boolean factoryInitialized = false;
+
+    private static volatile ActionFactoryConfiguration configuration = new ActionFactoryConfiguration();
+
+    // The class loader picked when the factory was initialized
+    private static ClassLoader classLoader = null;
+
+    /**
+     * A class registered in a library, along with its constructor once it has
+     * been resolved.
+     */
+    private static final class ActionEntry<T> {
+
+        private final Class<? extends T> type;
+
+        // Resolved on first use. Two threads may resolve it at the same time,
+        // which is harmless as both get an equivalent handle.
+        private volatile MethodHandle constructor;
+
+        ActionEntry(Class<? extends T> type) {
+            this.type = type;
+        }
+    }
 
     // TODO: Extend a data structure just to give it a different name. Is it a good
     // idea?
-    private static class ActionLibrary extends LinkedHashMap<String, Class<? extends IAction>> {
+    private static class ActionLibrary extends ConcurrentHashMap<String, ActionEntry<IAction>> {
 
         private static final long serialVersionUID = 5319075828568574182L;
     }
 
-    private static class InitializerLibrary extends LinkedHashMap<String, Class<? extends IInitializer>> {
+    private static class InitializerLibrary extends ConcurrentHashMap<String, ActionEntry<IInitializer>> {
 
         private static final long serialVersionUID = 5319075828568574182L;
     }
 
-    private static LinkedHashMap<String, ActionLibrary> actionLibrary = new LinkedHashMap<>();
-    private static LinkedHashMap<String, InitializerLibrary> initializerLibrary = new LinkedHashMap<>();
+    // The statistics are only collected when asked for, so that the
+    // instantiations do not pay for the clock and the counters otherwise
+    private static volatile boolean collectStatistics = false;
+    private static final LongAdder instantiations = new LongAdder();
+    private static int initializations = 0;
+    private static final LongAdder instantiationNanos = new LongAdder();
+
+    private static final Map<String, ActionLibrary> actionLibrary = new ConcurrentHashMap<>();
+    private static final Map<String, InitializerLibrary> initializerLibrary = new ConcurrentHashMap<>();
+
+    // Entries read from the indexes, by library, whose classes have not been
+    // loaded yet. Only accessed while holding the lock.
+    private static final Map<String, List<String[]>> indexedLibraries = new HashMap<>();
+
+    // Jars and folders in which an index has been found, as returned by
+    // getRoot(). Only accessed while holding the lock.
+    private static final Set<String> indexedRoots = new HashSet<>();
+
+    // Providers found through the ServiceLoader, by library. Only looked up
+    // the first time a library that is not known yet is requested, while
+    // holding the lock.
+    private static Map<String, List<IActionLibrary>> providers = null;
+
+    // Libraries whose classes have been fully loaded. A library is only added
+    // here once it is complete, so readers that find it here do not lock.
+    private static final Set<String> resolvedLibraries = ConcurrentHashMap.newKeySet();
 
     private ActionFactory() {
     }
 
     /**
-     * Will scan the classpath and look for classes annotated with @Action and
-     * that extends IAction. This is used to find the custom-built libraries and
-     * store them into a list of libraries.
+     * Will find the classes annotated with @Action that implement IAction or
+     * IInitializer. This is used to find the custom-built libraries and store
+     * them into a list of libraries.
+     *
+     * The classes are read from the indexes generated at build time by the
+     * ActionProcessor (see ActionIndex). The classpath is only scanned in case
+     * no index can be found, so that libraries built without the processor
+     * keep working. When the configuration limits the scan to some packages,
+     * URLs or class loader, the jars and folders among them without an index
+     * are scanned as well. Otherwise scanning the whole classpath would undo
+     * the gain of the indexes, so only the indexed libraries are found and a
+     * message is logged; initializeFactory(true) scans the classpath too.
+     *
+     * The classes listed in the indexes, as well as the libraries published
+     * through IActionLibrary, are only loaded when their library is requested
+     * for the first time.
+     *
+     * Where the factory looks for classes can be changed with
+     * setConfiguration().
      */
     public static void initializeFactory() {
+        initializeFactory(false);
+    }
+
+    /**
+     * Same as initializeFactory(), but allows to scan the classpath even when
+     * an index is found. Useful in case some of the libraries in the classpath
+     * have been built without the ActionProcessor.
+     *
+     * @param scanClasspath Whether the classpath should be scanned.
+     */
+    public static void initializeFactory(boolean scanClasspath) {
 
         if (factoryInitialized) {
             return;
         }
-        
-        Reflections reflections = new Reflections(
-                new ConfigurationBuilder().setUrls(ClasspathHelper.forJavaClassPath()));
 
+        synchronized (LOCK) {
+            if (factoryInitialized) {
+                return;
+            }
+
+            ActionFactoryConfiguration config = configuration;
+            classLoader = config.getClassLoader();
+            if (classLoader == null) {
+                classLoader = Thread.currentThread().getContextClassLoader();
+            }
+            if (classLoader == null) {
+                classLoader = ActionFactory.class.getClassLoader();
+            }
+
+            boolean indexed = config.isUseIndex() && loadIndexes();
+
+            if (scanClasspath || config.isScanClasspath() || !indexed) {
+                scan(config, getScanUrls(config));
+            } else if (isScoped(config)) {
+                // Libraries built without the ActionProcessor have no index
+                Collection<URL> urls = getScanUrls(config);
+                urls.removeIf(url -> indexedRoots.contains(getRoot(url.toExternalForm())));
+                if (!urls.isEmpty()) {
+                    scan(config, urls);
+                }
+            } else {
+                LOGGER.info("Action indexes found, the classpath is not scanned. Libraries built without "
+                        + "the ActionProcessor are only found with initializeFactory(true) or a configuration "
+                        + "limited to their packages or URLs.");
+            }
+
+            initializations++;
+            factoryInitialized = true;
+        }
+
+    }
+
+    private static void scan(ActionFactoryConfiguration config, Collection<URL> urls) {
+        Reflections reflections = new Reflections(getScanConfiguration(config, urls));
         scanInitializers(reflections);
         scanActions(reflections);
-        
-        factoryInitialized = true;
+    }
+
+    /**
+     * Tells whether the scan is limited by the configuration, instead of
+     * covering the whole classpath.
+     */
+    private static boolean isScoped(ActionFactoryConfiguration config) {
+        return !config.getUrls().isEmpty() || !config.getPackages().isEmpty()
+                || config.getClassLoader() instanceof URLClassLoader;
+    }
+
+    /**
+     * Will return the jars and folders to be scanned, limited to the packages
+     * and URLs in the configuration, if any.
+     */
+    private static Collection<URL> getScanUrls(ActionFactoryConfiguration config) {
+        List<URL> urls = new ArrayList<>();
+
+        if (!config.getUrls().isEmpty()) {
+            urls.addAll(config.getUrls());
+        } else if (!config.getPackages().isEmpty()) {
+            for (String packageName : config.getPackages()) {
+                urls.addAll(ClasspathHelper.forPackage(packageName, classLoader));
+            }
+        } else if (config.getClassLoader() instanceof URLClassLoader) {
+            // Only the URLs of the loader itself, as its parents usually hold
+            // the whole application classpath
+            Collections.addAll(urls, ((URLClassLoader) config.getClassLoader()).getURLs());
+        } else {
+            urls.addAll(ClasspathHelper.forJavaClassPath());
+        }
+
+        return urls;
+    }
+
+    /**
+     * Will build the configuration of the classpath scan over the given URLs,
+     * limited to the packages in the configuration, if any.
+     */
+    private static ConfigurationBuilder getScanConfiguration(ActionFactoryConfiguration config,
+            Collection<URL> urls) {
+        ConfigurationBuilder builder = new ConfigurationBuilder().addClassLoader(classLoader).addUrls(urls);
+
+        if (!config.getPackages().isEmpty()) {
+            FilterBuilder filter = new FilterBuilder();
+            config.getPackages().forEach(filter::includePackage);
+            builder.filterInputsBy(filter);
+        }
+
+        return builder;
+    }
 
+    /**
+     * Sets where the factory looks for actions and initializers. Takes effect
+     * the next time the factory is initialized, so it should either be called
+     * before anything is parsed or be followed by reinitializeFactory().
+     *
+     * @param configuration An instance of ActionFactoryConfiguration.
+     */
+    public static void setConfiguration(ActionFactoryConfiguration configuration) {
+        ActionFactory.configuration = configuration;
+    }
+
+    public static ActionFactoryConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Forgets all libraries found so far, so that the next call to
+     * initializeFactory() looks for them again. Useful to isolate tests and to
+     * reload plugins. It must not be called while other threads are using the
+     * factory.
+     */
+    public static void resetFactory() {
+        synchronized (LOCK) {
+            factoryInitialized = false;
+            actionLibrary.clear();
+            initializerLibrary.clear();
+            indexedLibraries.clear();
+            indexedRoots.clear();
+            providers = null;
+            resolvedLibraries.clear();
+            classLoader = null;
+        }
+    }
+
+    /**
+     * Forgets all libraries found so far and initializes the factory again,
+     * using the current configuration. Same restrictions as resetFactory().
+     */
+    public static void reinitializeFactory() {
+        synchronized (LOCK) {
+            resetFactory();
+            initializeFactory();
+        }
+    }
+
+    /**
+     * Will load all action indexes found in the classpath.
+     *
+     * @return Whether any index has been found.
+     */
+    private static boolean loadIndexes() {
+        Enumeration<URL> indexes;
+        try {
+            indexes = classLoader.getResources(ActionIndex.RESOURCE);
+        } catch (IOException e) {
+            return false;
+        }
+
+        boolean found = false;
+        while (indexes.hasMoreElements()) {
+            URL index = indexes.nextElement();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split(ActionIndex.SEPARATOR);
+                    if (fields.length == 4) {
+                        indexedLibraries.computeIfAbsent(fields[1], name -> new ArrayList<>()).add(fields);
+                    }
+                }
+                String location = index.toExternalForm();
+                indexedRoots.add(getRoot(location.substring(0, location.length() - ActionIndex.RESOURCE.length())));
+                found = true;
+            } catch (IOException e) {
+                // An index that cannot be read is handled as a missing index
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Will return the jar or folder of a URL in the same form whether it
+     * comes from the class path or points into a jar, as in
+     * "jar:file:/lib.jar!/".
+     */
+    private static String getRoot(String location) {
+        if (location.startsWith("jar:") && location.endsWith("!/")) {
+            location = location.substring("jar:".length(), location.length() - "!/".length());
+        }
+        if (location.endsWith("/")) {
+            location = location.substring(0, location.length() - 1);
+        }
+        return location;
+    }
+
+    /**
+     * Will register a single entry of an action index. Classes that cannot be
+     * loaded anymore are ignored, the same way the classpath scan ignores
+     * them.
+     */
+    private static void registerIndexEntry(String[] fields, ClassLoader loader) {
+        Class<?> clazz;
+        try {
+            clazz = Class.forName(fields[3], false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return;
+        }
+
+        if (ActionIndex.ACTION.equals(fields[0]) && IAction.class.isAssignableFrom(clazz)) {
+            registerAction(fields[1], fields[2], clazz.asSubclass(IAction.class));
+        } else if (ActionIndex.INITIALIZER.equals(fields[0]) && IInitializer.class.isAssignableFrom(clazz)) {
+            registerInitializer(fields[1], fields[2], clazz.asSubclass(IInitializer.class));
+        }
+    }
+
+    /**
+     * Will load the classes of a library, the first time it is requested, from
+     * the indexes and from the IActionLibrary providers.
+     *
+     * Before the factory is initialized the indexes have not been read yet, so
+     * the library is not marked as resolved and is loaded again once the
+     * factory is initialized.
+     *
+     * @param libraryName Name of the library being requested.
+     */
+    private static void resolveLibrary(String libraryName) {
+        if (resolvedLibraries.contains(libraryName)) {
+            return;
+        }
+        synchronized (LOCK) {
+            if (!resolvedLibraries.contains(libraryName)) {
+                loadLibrary(libraryName);
+                if (factoryInitialized) {
+                    resolvedLibraries.add(libraryName);
+                }
+            }
+        }
+    }
+
+    private static void loadLibrary(String libraryName) {
+        List<String[]> entries = indexedLibraries.remove(libraryName);
+        if (entries != null) {
+            ClassLoader loader = getClassLoader();
+            entries.forEach(entry -> registerIndexEntry(entry, loader));
+        }
+
+        for (IActionLibrary provider : getProviders().getOrDefault(libraryName, Collections.emptyList())) {
+            provider.getActions().forEach((name, action) -> {
+                if (hasDefaultConstructor(action)) {
+                    registerAction(libraryName, name, action);
+                }
+            });
+            provider.getInitializers().forEach((name, initializer) -> {
+                if (hasDefaultConstructor(initializer)) {
+                    registerInitializer(libraryName, name, initializer);
+                }
+            });
+        }
+    }
+
+    /**
+     * Will look for the IActionLibrary providers, only instantiating them.
+     * Providers that cannot be instantiated are ignored.
+     *
+     * @return The providers by library name.
+     */
+    private static Map<String, List<IActionLibrary>> getProviders() {
+        if (providers != null) {
+            return providers;
+        }
+
+        providers = new HashMap<>();
+        Iterator<IActionLibrary> iterator = ServiceLoader.load(IActionLibrary.class, getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                IActionLibrary provider = iterator.next();
+                providers.computeIfAbsent(provider.getName(), name -> new ArrayList<>()).add(provider);
+            } catch (ServiceConfigurationError e) {
+                // Skip the broken provider and keep looking for the others
+            }
+        }
+        return providers;
+    }
+
+    /**
+     * Returns the class loader picked at initialization, or the one that would
+     * be picked in case the factory has not been initialized yet.
+     */
+    private static ClassLoader getClassLoader() {
+        ClassLoader loader = classLoader;
+        if (loader == null) {
+            loader = configuration.getClassLoader();
+        }
+        if (loader == null) {
+            loader = Thread.currentThread().getContextClassLoader();
+        }
+        return loader != null ? loader : ActionFactory.class.getClassLoader();
+    }
+
+    private static boolean hasDefaultConstructor(Class<?> clazz) {
+        for (Constructor<?> cons : clazz.getConstructors()) {
+            if (cons.getParameterCount() == 0) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private static void scanInitializers(Reflections reflections) {
         List<Class<? extends IInitializer>> classes = new ArrayList<>(reflections.getSubTypesOf(IInitializer.class));
         for (Class<? extends IInitializer> clazz : classes) {
-            if (clazz.isAnnotationPresent(Action.class)) {
-                for (Constructor<?> cons : clazz.getConstructors()) {
-                    if (cons.getParameterCount() == 0) {
-                        registerInitializer(clazz);
-                        break;
-                    }
-                }
+            if (clazz.isAnnotationPresent(Action.class) && hasDefaultConstructor(clazz)) {
+                registerInitializer(clazz);
             }
         }
     }
@@ -76,13 +471,8 @@ public class ActionFactory {
     private static void scanActions(Reflections reflections) {
         List<Class<? extends IAction>> classes = new ArrayList<>(reflections.getSubTypesOf(IAction.class));
         for (Class<? extends IAction> clazz : classes) {
-            if (clazz.isAnnotationPresent(Action.class)) {
-                for (Constructor<?> cons : clazz.getConstructors()) {
-                    if (cons.getParameterCount() == 0) {
-                        registerAction(clazz);
-                        break;
-                    }
-                }
+            if (clazz.isAnnotationPresent(Action.class) && hasDefaultConstructor(clazz)) {
+                registerAction(clazz);
             }
         }
     }
@@ -97,23 +487,24 @@ public class ActionFactory {
     private static void registerAction(Class<? extends IAction> action) {
         String actionName = action.getAnnotation(Action.class).name();
         String libraryName = action.getAnnotation(Action.class).library();
+        registerAction(libraryName, actionName, action);
+    }
 
-        if (!actionLibrary.containsKey(libraryName)) {
-            actionLibrary.put(libraryName, new ActionLibrary());
-        }
-
-        actionLibrary.get(libraryName).put(actionName, action);
+    private static void registerAction(String libraryName, String actionName, Class<? extends IAction> action) {
+        actionLibrary.computeIfAbsent(libraryName, name -> new ActionLibrary())
+                .put(actionName, new ActionEntry<>(action));
     }
 
     private static void registerInitializer(Class<? extends IInitializer> initializer) {
         String actionName = initializer.getAnnotation(Action.class).name();
         String libraryName = initializer.getAnnotation(Action.class).library();
+        registerInitializer(libraryName, actionName, initializer);
+    }
 
-        if (!initializerLibrary.containsKey(libraryName)) {
-            initializerLibrary.put(libraryName, new InitializerLibrary());
-        }
-
-        initializerLibrary.get(libraryName).put(actionName, initializer);
+    private static void registerInitializer(String libraryName, String actionName,
+            Class<? extends IInitializer> initializer) {
+        initializerLibrary.computeIfAbsent(libraryName, name -> new InitializerLibrary())
+                .put(actionName, new ActionEntry<>(initializer));
     }
 
     /**
@@ -147,54 +538,30 @@ public class ActionFactory {
      * @throws CannotFindJaoInitializerException
      * @throws CannotFindJaoActionException
      */
-    @SuppressWarnings("unchecked")
     public static IAction getAction(String libraryName, String actionName, ActionModel model)
             throws CannotInstantiateJaoActionException, CannotFindJaoLibraryException, CannotFindJaoActionException {
-        IAction action;
-        Constructor<IAction> defaultContructor;
-
-        // Initialize stuff
-        defaultContructor = null;
+        resolveLibrary(libraryName);
 
         // Handle errors
-        if (!actionLibrary.containsKey(libraryName)) {
+        ActionLibrary library = actionLibrary.get(libraryName);
+        if (library == null) {
             throw new CannotFindJaoLibraryException(libraryName);
         }
-        if (!actionLibrary.get(libraryName).containsKey(actionName)) {
+        ActionEntry<IAction> entry = library.get(actionName);
+        if (entry == null) {
             throw new CannotFindJaoActionException(actionName);
         }
 
-        // Get the constructor with no parameters
-        for (Constructor<?> constructor : actionLibrary.get(libraryName).get(actionName).getConstructors()) {
-            if (constructor.getParameterCount() == 0) {
-                defaultContructor = (Constructor<IAction>) constructor;
-                break;
-            }
-        }
-
-        // Throw an error in case the constructor was not found
-        if (defaultContructor == null) {
-            throw new CannotInstantiateJaoActionException(actionName,
-                    new RuntimeException("No argument-free constructor was found for action."));
-        }
-
-        try {
-            // Get the action from the library and instantiate it
-            action = defaultContructor.newInstance();
+        // Get the action from the library and instantiate it
+        IAction action = newInstance(entry, actionName, "action");
 
-            // In case the call has a model, load it
-            if (model != null) {
-                action.loadModel(model);
-                action.reset();
-            }
-
-            return action;
-
-        } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException e) {
-            throw new CannotInstantiateJaoActionException(actionName, e);
+        // In case the call has a model, load it
+        if (model != null) {
+            action.loadModel(model);
+            action.reset();
         }
 
+        return action;
     }
 
     /**
@@ -229,54 +596,144 @@ public class ActionFactory {
      * @throws CannotFindJaoLibraryException
      * @throws CannotFindJaoInitializerException
      */
-    @SuppressWarnings("unchecked")
     public static IInitializer getInitializer(String libraryName, String initializeName, ActionModel model)
             throws CannotInstantiateJaoActionException, CannotFindJaoLibraryException,
             CannotFindJaoInitializerException {
-        IInitializer initializer;
-        Constructor<IInitializer> defaultContructor;
-
-        // Initialize stuff
-        defaultContructor = null;
+        resolveLibrary(libraryName);
 
         // Handle errors
-        if (!initializerLibrary.containsKey(libraryName)) {
+        InitializerLibrary library = initializerLibrary.get(libraryName);
+        if (library == null) {
             throw new CannotFindJaoLibraryException(libraryName);
         }
-        if (!initializerLibrary.get(libraryName).containsKey(initializeName)) {
+        ActionEntry<IInitializer> entry = library.get(initializeName);
+        if (entry == null) {
             throw new CannotFindJaoInitializerException(initializeName);
         }
 
-        // Get the constructor with no parameters
-        for (Constructor<?> constructor : initializerLibrary.get(libraryName).get(initializeName).getConstructors()) {
-            if (constructor.getParameterCount() == 0) {
-                defaultContructor = (Constructor<IInitializer>) constructor;
-                break;
-            }
+        // Get the initializer from the library and instantiate it
+        IInitializer initializer = newInstance(entry, initializeName, "initializer");
+
+        // In case the call has a model, load it
+        if (model != null) {
+            initializer.loadModel(model);
         }
 
-        // Throw an error in case the constructor was not found
-        if (defaultContructor == null) {
-            throw new CannotInstantiateJaoActionException(initializeName,
-                    new RuntimeException("No argument-free constructor was found for initializer."));
+        return initializer;
+    }
+
+    /**
+     * Will create a new instance of an action or initializer, counting it in
+     * the statistics in case they are being collected.
+     *
+     * @param entry The entry of the action in its library.
+     * @param name Name of the action, used in the errors.
+     * @param kind Either "action" or "initializer", used in the errors.
+     * @return A new instance of the action.
+     * @throws CannotInstantiateJaoActionException In case the constructor
+     * cannot be found or fails.
+     */
+    private static <T> T newInstance(ActionEntry<T> entry, String name, String kind)
+            throws CannotInstantiateJaoActionException {
+        if (!collectStatistics) {
+            return instantiate(entry, name, kind);
         }
 
+        long start = System.nanoTime();
         try {
-            // Get the action from the library and instantiate it
-            initializer = defaultContructor.newInstance();
+            return instantiate(entry, name, kind);
+        } finally {
+            instantiations.increment();
+            instantiationNanos.add(System.nanoTime() - start);
+        }
+    }
 
-            // In case the call has a model, load it
-            if (model != null) {
-                initializer.loadModel(model);
+    /**
+     * Will call the constructor of an action or initializer. The constructor
+     * is resolved into a MethodHandle the first time the entry is used, and
+     * the handle is reused afterwards. Errors thrown by the constructor, such
+     * as an OutOfMemoryError, are not wrapped.
+     */
+    private static <T> T instantiate(ActionEntry<T> entry, String name, String kind)
+            throws CannotInstantiateJaoActionException {
+        MethodHandle constructor = entry.constructor;
+        if (constructor == null) {
+            try {
+                constructor = MethodHandles.publicLookup()
+                        .findConstructor(entry.type, MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Object.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new CannotInstantiateJaoActionException(name,
+                        new RuntimeException("No argument-free constructor was found for " + kind + "."));
             }
+            entry.constructor = constructor;
+        }
+
+        try {
+            return entry.type.cast((Object) constructor.invokeExact());
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new CannotInstantiateJaoActionException(name,
+                    e instanceof Exception ? (Exception) e : new RuntimeException(e));
+        }
+    }
+
+    /**
+     * Defines if the instantiations of actions and initializers are counted and
+     * timed. Disabled by default, as it costs two reads of the clock on each
+     * instantiation.
+     *
+     * @param collect Whether to collect the statistics.
+     */
+    public static void setCollectStatistics(boolean collect) {
+        collectStatistics = collect;
+    }
+
+    public static boolean isCollectStatistics() {
+        return collectStatistics;
+    }
+
+    /**
+     * Returns how many actions and initializers have been instantiated so far,
+     * including the ones that failed, while the statistics were being
+     * collected.
+     *
+     * @return The amount of instantiations.
+     */
+    public static long getInstantiationCount() {
+        return instantiations.sum();
+    }
 
-            return initializer;
+    /**
+     * Returns how much time has been spent instantiating actions and
+     * initializers so far, including the constructors themselves, while the
+     * statistics were being collected.
+     *
+     * @return The time spent in nanoseconds.
+     */
+    public static long getInstantiationNanos() {
+        return instantiationNanos.sum();
+    }
 
-        } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException e) {
-            throw new CannotInstantiateJaoActionException(initializeName, e);
+    /**
+     * Returns how many times the factory has looked for libraries, that is, how
+     * many times it has actually been initialized. Used by the tests.
+     *
+     * @return The amount of initializations since the class was loaded.
+     */
+    static int getInitializationCount() {
+        synchronized (LOCK) {
+            return initializations;
         }
+    }
 
+    /**
+     * Sets the instantiation count and time back to zero.
+     */
+    public static void resetStatistics() {
+        instantiations.reset();
+        instantiationNanos.reset();
     }
 
 }
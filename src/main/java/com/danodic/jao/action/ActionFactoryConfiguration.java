@@ -0,0 +1,114 @@
+package com.danodic.jao.action;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tells the ActionFactory where to look for actions and initializers. It is
+ * passed to ActionFactory.setConfiguration() and takes effect the next time
+ * the factory is initialized.
+ *
+ * The packages and URLs limit the classpath scan, in case it happens: when
+ * packages are given, only classes in those packages are scanned, and when
+ * URLs are given, only those jars or folders are scanned. Without either, the
+ * whole classpath is scanned. When indexes are found, only the jars and
+ * folders among them that have no index are scanned. The indexes and the
+ * IActionLibrary providers are not affected by them.
+ *
+ * The class loader, when given, is used to find the indexes, the providers and
+ * the classes themselves. Otherwise the context class loader of the thread
+ * that initializes the factory is used. When the class loader is a
+ * URLClassLoader and neither packages nor URLs are given, the scan is limited
+ * to the URLs of that loader, leaving out the ones of its parents.
+ */
+public class ActionFactoryConfiguration {
+
+    private final List<String> packages;
+    private final List<URL> urls;
+    private ClassLoader classLoader;
+    private boolean useIndex;
+    private boolean scanClasspath;
+
+    public ActionFactoryConfiguration() {
+        packages = new ArrayList<>();
+        urls = new ArrayList<>();
+        classLoader = null;
+        useIndex = true;
+        scanClasspath = false;
+    }
+
+    /**
+     * Limits the scan to a package. Can be called many times to scan many
+     * packages.
+     *
+     * @param packageName Name of the package, such as "com.sample.actions".
+     * @return This configuration.
+     */
+    public ActionFactoryConfiguration addPackage(String packageName) {
+        packages.add(packageName);
+        return this;
+    }
+
+    /**
+     * Limits the scan to a jar or a folder. Can be called many times to scan
+     * many of them.
+     *
+     * @param url The URL of the jar or folder.
+     * @return This configuration.
+     */
+    public ActionFactoryConfiguration addUrl(URL url) {
+        urls.add(url);
+        return this;
+    }
+
+    public List<String> getPackages() {
+        return Collections.unmodifiableList(packages);
+    }
+
+    public List<URL> getUrls() {
+        return Collections.unmodifiableList(urls);
+    }
+
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    public ActionFactoryConfiguration setClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        return this;
+    }
+
+    public boolean isUseIndex() {
+        return useIndex;
+    }
+
+    /**
+     * Defines if the indexes generated by the ActionProcessor should be used.
+     * When they are not, the classpath is always scanned.
+     *
+     * @param useIndex Whether to use the indexes. True by default.
+     * @return This configuration.
+     */
+    public ActionFactoryConfiguration setUseIndex(boolean useIndex) {
+        this.useIndex = useIndex;
+        return this;
+    }
+
+    public boolean isScanClasspath() {
+        return scanClasspath;
+    }
+
+    /**
+     * Defines if the classpath should be scanned even when an index is found.
+     *
+     * @param scanClasspath Whether to always scan. False by default.
+     * @return This configuration.
+     */
+    public ActionFactoryConfiguration setScanClasspath(boolean scanClasspath) {
+        this.scanClasspath = scanClasspath;
+        return this;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.danodic.jao.action;
+
+/**
+ * Describes the index of actions and initializers generated at build time by
+ * the ActionProcessor. Each jar that contains classes annotated with @Action
+ * gets a copy of the index as a resource, so that the ActionFactory can find
+ * them without scanning the classpath.
+ *
+ * The index is a text file with one entry per line, with the kind of entry,
+ * the library, the name and the class separated by tabs:
+ *
+ * <pre>
+ * action	jao.sample	FadeIn	com.sample.FadeInAction
+ * initializer	jao.sample	Opacity	com.sample.OpacityInitializer
+ * </pre>
+ */
+public final class ActionIndex {
+
+    public static final String RESOURCE = "META-INF/jao/actions.index";
+
+    public static final String ACTION = "action";
+    public static final String INITIALIZER = "initializer";
+
+    public static final String SEPARATOR = "\t";
+
+    private ActionIndex() {
+    }
+
+}
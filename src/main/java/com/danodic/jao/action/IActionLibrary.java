@@ -0,0 +1,42 @@
+package com.danodic.jao.action;
+
+import java.util.Map;
+
+/**
+ * Allows an action library to publish its actions and initializers through
+ * java.util.ServiceLoader, by listing the implementation in
+ * META-INF/services/com.danodic.jao.action.IActionLibrary.
+ *
+ * The ActionFactory only asks a provider for its classes when a library with
+ * the same name is requested for the first time, so libraries that are never
+ * used by the animations being loaded are never loaded. Because of that, the
+ * constructor of the provider should be cheap and must not load the classes of
+ * the library.
+ *
+ * Classes provided this way do not need the @Action annotation, but they still
+ * need a public constructor without arguments.
+ */
+public interface IActionLibrary {
+
+    /**
+     * Returns the name of the library, as used in the JSON files.
+     *
+     * @return The name of the library.
+     */
+    public String getName();
+
+    /**
+     * Returns the actions in this library.
+     *
+     * @return A map with the name of each action and its class.
+     */
+    public Map<String, Class<? extends IAction>> getActions();
+
+    /**
+     * Returns the initializers in this library.
+     *
+     * @return A map with the name of each initializer and its class.
+     */
+    public Map<String, Class<? extends IInitializer>> getInitializers();
+
+}
@@ -0,0 +1,167 @@
+package com.danodic.jao.action.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.danodic.jao.action.Action;
+import com.danodic.jao.action.ActionIndex;
+import com.danodic.jao.action.IAction;
+import com.danodic.jao.action.IInitializer;
+
+/**
+ * Generates the index of actions and initializers described in ActionIndex at
+ * build time. It picks up the classes annotated with @Action that implement
+ * IAction or IInitializer and have a public constructor without arguments,
+ * which are the same classes the classpath scan of the ActionFactory accepts.
+ *
+ * The processor is registered as a service, so it runs automatically when the
+ * jao jar is in the classpath of the compiler.
+ *
+ * Incremental builds only compile the classes that changed, so the entries of
+ * the index left by the previous build are kept, except for the classes
+ * compiled again and the ones that do not exist or are not annotated anymore.
+ */
+@SupportedAnnotationTypes("com.danodic.jao.action.Action")
+public class ActionProcessor extends AbstractProcessor {
+
+    private final Set<String> entries = new TreeSet<>();
+    private final Set<String> processedClasses = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            boolean previousIndex = readIndex();
+            if (previousIndex || !entries.isEmpty()) {
+                writeIndex();
+            }
+            return false;
+        }
+
+        TypeMirror actionType = getType(IAction.class);
+        TypeMirror initializerType = getType(IInitializer.class);
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(Action.class)) {
+            if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            processedClasses.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+            if (!hasDefaultConstructor(type)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "Classes annotated with @Action need a public constructor without arguments.", type);
+                continue;
+            }
+
+            Action action = type.getAnnotation(Action.class);
+            String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+            if (processingEnv.getTypeUtils().isAssignable(type.asType(), actionType)) {
+                entries.add(entry(ActionIndex.ACTION, action, className));
+            }
+            if (processingEnv.getTypeUtils().isAssignable(type.asType(), initializerType)) {
+                entries.add(entry(ActionIndex.INITIALIZER, action, className));
+            }
+        }
+
+        return false;
+    }
+
+    private TypeMirror getType(Class<?> clazz) {
+        return processingEnv.getElementUtils().getTypeElement(clazz.getCanonicalName()).asType();
+    }
+
+    private static boolean hasDefaultConstructor(TypeElement type) {
+        if (!type.getModifiers().contains(Modifier.PUBLIC)) {
+            return false;
+        }
+        for (Element enclosed : type.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.CONSTRUCTOR
+                    && enclosed.getModifiers().contains(Modifier.PUBLIC)
+                    && ((ExecutableElement) enclosed).getParameters().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String entry(String kind, Action action, String className) {
+        return String.join(ActionIndex.SEPARATOR, kind, action.library(), action.name(), className);
+    }
+
+    /**
+     * Will add the entries of the index written by the previous build that
+     * are still valid.
+     *
+     * @return Whether there was a previous index.
+     */
+    private boolean readIndex() {
+        FileObject file;
+        try {
+            file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", ActionIndex.RESOURCE);
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.openInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(ActionIndex.SEPARATOR);
+                if (fields.length == 4 && !processedClasses.contains(fields[3]) && isAnnotated(fields[3])) {
+                    entries.add(line);
+                }
+            }
+        } catch (IOException e) {
+            // There is no index from a previous build
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isAnnotated(String className) {
+        TypeElement type = processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+        return type != null && type.getAnnotation(Action.class) != null;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject file = processingEnv.getFiler().createResource(
+                    StandardLocation.CLASS_OUTPUT, "", ActionIndex.RESOURCE);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String entry : entries) {
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write the action index: " + e.getMessage());
+        }
+    }
+
+}
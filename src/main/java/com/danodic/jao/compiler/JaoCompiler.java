@@ -0,0 +1,250 @@
+package com.danodic.jao.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.danodic.jao.model.ActionModel;
+import com.danodic.jao.model.DataTypeModel;
+import com.danodic.jao.model.EventModel;
+import com.danodic.jao.model.JaoModel;
+import com.danodic.jao.model.LayerModel;
+import com.danodic.jao.parser.BinaryFormat;
+import com.danodic.jao.parser.expressions.TimeExpressionParser;
+import com.google.gson.Gson;
+
+/**
+ * Compiles jao.json into the binary timeline described in BinaryFormat, so that
+ * the time expressions are resolved and the actions sorted once, offline,
+ * instead of every time an animation is loaded.
+ *
+ * It can be run from the command line:
+ *
+ * <pre>
+ * java -cp jao.jar com.danodic.jao.compiler.JaoCompiler input [output]
+ * </pre>
+ *
+ * The input may be a jao folder, a .jao/.zip file or a json file. Without an
+ * output, jao.bin is written into the folder or archive, or next to the json
+ * file. With an output, the binary is written to that path.
+ *
+ * @author danodic
+ */
+public class JaoCompiler {
+
+    private static final Gson GSON = new Gson();
+    private static final String JSON_FILENAME = "jao.json";
+
+    private final Map<String, Integer> indexes;
+    private final List<String> strings;
+
+    private JaoCompiler() {
+        indexes = new HashMap<>();
+        strings = new ArrayList<>();
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: JaoCompiler input [output]");
+            System.exit(1);
+        }
+
+        try {
+            Path output = compile(Paths.get(args[0]), args.length > 1 ? Paths.get(args[1]) : null);
+            System.out.println(String.format("Wrote %s.", output));
+        } catch (IOException | RuntimeException e) {
+            System.err.println(String.format("Could not compile '%s': %s", args[0], e));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compiles the jao.json in a folder, archive or json file.
+     *
+     * @param input A jao folder, a .jao/.zip file or a json file.
+     * @param output Where to write the binary, or null to write jao.bin next
+     * to the json.
+     * @return The path the binary has been written to.
+     * @throws IOException In case the input cannot be read or the output cannot
+     * be written.
+     */
+    public static Path compile(Path input, Path output) throws IOException {
+        if (Files.isDirectory(input)) {
+            byte[] binary = compile(read(input.resolve(JSON_FILENAME)));
+            return write(output != null ? output : input.resolve(BinaryFormat.FILENAME), binary);
+        }
+
+        String name = input.getFileName().toString().toLowerCase();
+        if (!name.endsWith(".zip") && !name.endsWith(".jao")) {
+            byte[] binary = compile(read(input));
+            return write(output != null ? output : input.resolveSibling(BinaryFormat.FILENAME), binary);
+        }
+
+        URI uri = URI.create("jar:" + input.toAbsolutePath().toUri());
+        try (FileSystem archive = FileSystems.newFileSystem(uri, Collections.<String, Object>emptyMap())) {
+            byte[] binary = compile(read(archive.getPath(JSON_FILENAME)));
+            if (output != null) {
+                return write(output, binary);
+            }
+            write(archive.getPath(BinaryFormat.FILENAME), binary);
+        }
+        return input;
+    }
+
+    /**
+     * Compiles the contents of a json file into a binary timeline.
+     *
+     * @param json The contents of jao.json.
+     * @return The binary timeline.
+     */
+    public static byte[] compile(String json) {
+        JaoModel model = GSON.fromJson(json, JaoModel.class);
+        try {
+            return new JaoCompiler().write(model, BinaryFormat.checksum(json));
+        } catch (IOException e) {
+            // Only happens if the byte array cannot grow
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    private static Path write(Path path, byte[] binary) throws IOException {
+        Files.write(path, binary);
+        return path;
+    }
+
+    /**
+     * Writes the model. The layers are written first so that the string table
+     * is complete by the end, and then the header and table are put in front of
+     * them.
+     */
+    private byte[] write(JaoModel model, int checksum) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        List<LayerModel> layers = model.getLayers() != null ? model.getLayers() : Collections.emptyList();
+        out.writeInt(layers.size());
+        for (LayerModel layer : layers) {
+            writeLayer(out, layer);
+        }
+        out.flush();
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream(body.size() + 1024);
+        DataOutputStream header = new DataOutputStream(file);
+        header.writeInt(BinaryFormat.MAGIC);
+        header.writeShort(BinaryFormat.VERSION);
+        header.writeInt(checksum);
+        header.writeInt(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            header.writeInt(bytes.length);
+            header.write(bytes);
+        }
+        header.flush();
+        body.writeTo(file);
+
+        return file.toByteArray();
+    }
+
+    private void writeLayer(DataOutputStream out, LayerModel layer) throws IOException {
+        DataTypeModel dataType = layer.getDataType();
+        out.writeBoolean(dataType != null);
+        if (dataType != null) {
+            writeString(out, dataType.getType());
+            writeMap(out, dataType.getAttributes());
+        }
+
+        // Only the first initialize event is used, the same as in the parser
+        List<EventModel> events = new ArrayList<>();
+        List<ActionModel> initializers = null;
+        for (EventModel event : layer.getEvents() != null ? layer.getEvents() : Collections.<EventModel>emptyList()) {
+            if (!event.getName().equalsIgnoreCase("initialize")) {
+                events.add(event);
+            } else if (initializers == null) {
+                initializers = event.getActions();
+            }
+        }
+
+        initializers = initializers != null ? initializers : Collections.emptyList();
+        out.writeInt(initializers.size());
+        for (ActionModel initializer : initializers) {
+            writeAction(out, initializer);
+        }
+
+        out.writeInt(events.size());
+        for (EventModel event : events) {
+            writeEvent(out, event);
+        }
+    }
+
+    private void writeEvent(DataOutputStream out, EventModel event) throws IOException {
+        List<ActionModel> actions = event.getActions() != null ? event.getActions() : Collections.emptyList();
+
+        // Resolve the times and sort the actions by them. The sort is stable,
+        // so actions that start at the same time keep their declaration order.
+        Map<ActionModel, Long> when = new HashMap<>();
+        for (ActionModel action : actions) {
+            when.put(action, TimeExpressionParser.parseExpression(action.getWhen()));
+        }
+        List<ActionModel> sorted = new ArrayList<>(actions);
+        sorted.sort(Comparator.comparingLong(when::get));
+
+        writeString(out, event.getName());
+        out.writeInt(sorted.size());
+        for (ActionModel action : sorted) {
+            out.writeLong(when.get(action));
+            writeAction(out, action);
+        }
+    }
+
+    private void writeAction(DataOutputStream out, ActionModel action) throws IOException {
+        writeString(out, action.getLibrary());
+        writeString(out, action.getName());
+        writeString(out, action.getWhen());
+        writeString(out, action.getAttribute());
+        writeMap(out, action.getAttributes());
+    }
+
+    private void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        if (map == null) {
+            out.writeInt(BinaryFormat.NONE);
+            return;
+        }
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(BinaryFormat.NONE);
+            return;
+        }
+        Integer index = indexes.get(string);
+        if (index == null) {
+            index = strings.size();
+            indexes.put(string, index);
+            strings.add(string);
+        }
+        out.writeInt(index);
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.danodic.jao.core;
+
+/**
+ * Optional interface for actions, initializers and renderers that want to use
+ * the slot accessors of LayerParameters. The layer calls bindParameters() when
+ * the element is added to it, and the element resolves the names of the
+ * parameters it uses into slots and keeps them in fields:
+ *
+ * <pre>
+ * public void bindParameters(LayerParameters parameters) {
+ *     opacity = parameters.floatSlot("opacity");
+ * }
+ *
+ * public void run(JaoLayer layer) {
+ *     layer.getParameters().setFloat(opacity, value);
+ * }
+ * </pre>
+ *
+ * Elements that do not implement this interface keep working with the parameter
+ * names, as usual.
+ */
+public interface IParameterBinder {
+
+    /**
+     * Resolve the parameter names used by this element into slots.
+     *
+     * @param parameters The parameters of the layer this element belongs to.
+     */
+    public void bindParameters(LayerParameters parameters);
+
+}
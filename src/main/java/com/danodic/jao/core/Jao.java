@@ -34,18 +34,62 @@ import java.util.stream.Collectors;
  * the programmer to implement new libraries and mix and match them with the
  * existing ones. Take a look at the IAction and IInitializer interfaces to
  * understand how it is done.
+ *
+ * By default, render() runs the actions and draws the layers in one go. Once
+ * update() has been called, both steps are split: update() runs the actions
+ * and render() only draws the layers, so that each action still runs once per
+ * frame. Calling setDecoupled(true) also makes update() publish a snapshot of
+ * the parameters of each layer, and render() only draw the last snapshot
+ * published. That allows update() and render() to be called from different
+ * threads and at different rates, without locks.
+ *
+ * The actions can also be run at a fixed rate with setUpdateRate(), no matter
+ * how often the instance is rendered. The time provided by the clock is then
+ * consumed in fixed steps, and the floats and doubles of the parameters are
+ * interpolated between the last two steps when rendering, decoupled or not, so
+ * that the animation stays smooth on displays that refresh faster than the
+ * update rate.
  */
 public class Jao {
 
     private List<JaoLayer> layers;
-    private Long elapsed;
+    private long elapsed;
+    private long elapsedNanos;
     private float scaleFactor;
 
     private IExtractor extractor;
 
     private IClock clock;
 
+    private final JaoTemplate template;
+
+    private boolean decoupled;
+
+    // Whether update() has been called, in which case render() only draws
+    private boolean updated;
+
+    private static final int MAX_STEPS_PER_UPDATE = 8;
+
+    // Fixed update rate and the length of each step in milliseconds. Both are
+    // zero when the actions run once per frame.
+    private int updateRate;
+    private double step;
+    private double simulated;
+    private boolean started;
+    private float alpha;
+
     public Jao() {
+        this(null);
+    }
+
+    /**
+     * Creates an empty Jao instance that remembers the template it was created
+     * from. Used by JaoTemplate.newInstance().
+     *
+     * @param template The template this instance is created from.
+     */
+    Jao(JaoTemplate template) {
+        this.template = template;
         clock = new StandardClock();
         layers = new ArrayList<>();
         elapsed = 0L;
@@ -60,6 +104,8 @@ public class Jao {
      * @param layer A instance of JaoLayer.
      */
     public void addLayer(JaoLayer layer) {
+        layer.setDecoupled(decoupled);
+        layer.setInterpolated(updateRate > 0);
         this.layers.add(layer);
     }
 
@@ -72,14 +118,38 @@ public class Jao {
      * @param layers A list of JaoLayer.
      */
     public void addLayers(List<JaoLayer> layers) {
+        layers.forEach(layer -> {
+            layer.setDecoupled(decoupled);
+            layer.setInterpolated(updateRate > 0);
+        });
         this.layers.addAll(layers);
     }
 
     /**
      * Will render each of the layers allowing to pass arguments to the
      * renderer.
+     *
+     * Once update() has been called, it will not run any actions and will only
+     * draw the layers. When decoupled, it only draws the last snapshot
+     * published by update(), and may be called from a different thread than
+     * update().
+     *
+     * With a fixed update rate, it will run the steps that are due, unless
+     * update() is being called, and draw the parameters interpolated between
+     * the last two steps.
      */
     public void render(Object... args) {
+        if (decoupled || updated) {
+            renderLayers(args);
+            return;
+        }
+
+        if (updateRate > 0) {
+            advance(clock.nowNanos());
+            renderLayers(args);
+            return;
+        }
+
         updateElapsed();
         for (JaoLayer layer : layers) {
             if (layer.getEvent() != null) {
@@ -88,6 +158,196 @@ public class Jao {
         }
     }
 
+    /**
+     * Runs the actions of all layers using the time provided by the clock,
+     * without rendering them. See update(long).
+     */
+    public void update() {
+        updated = true;
+        advance(clock.nowNanos());
+    }
+
+    /**
+     * Runs the actions of all layers at the given time, removes the ones that
+     * are done and, when decoupled, publishes a snapshot of the parameters to
+     * be drawn by render().
+     *
+     * All calls to update() must be made from the same thread, and so must
+     * the calls that change the state of the animation (setEvent(), reset() and
+     * so on).
+     *
+     * With a fixed update rate, the actions run once for each step that fits
+     * between the last step and the given time.
+     *
+     * After the first call, render() stops running the actions, so update()
+     * must then be called once per frame.
+     *
+     * @param elapsed How much time has elapsed since the beginning of the
+     * current event, in milliseconds.
+     */
+    public void update(long elapsed) {
+        updated = true;
+        advance(elapsed * IClock.NANOS_PER_MILLISECOND);
+    }
+
+    /**
+     * Runs the actions up to the given time, in nanoseconds, and publishes the
+     * parameters.
+     */
+    private void advance(long elapsed) {
+        if (updateRate > 0) {
+            updateFixed(elapsed);
+        } else {
+            step(elapsed);
+        }
+        for (JaoLayer layer : layers) {
+            layer.publishParameters();
+        }
+    }
+
+    /**
+     * Runs as many fixed steps as needed to catch up with the given time, in
+     * nanoseconds, and computes the alpha to be used when interpolating.
+     */
+    private void updateFixed(long elapsed) {
+
+        // The first step happens at time zero, so that actions starting right
+        // away are not delayed by one step.
+        if (!started) {
+            started = true;
+            simulated = 0d;
+            step(0L);
+        }
+
+        int steps = 0;
+        while (simulated + step <= elapsed) {
+
+            // In case the updates cannot keep up, drop the steps that are
+            // left behind instead of falling further and further behind.
+            if (steps++ == MAX_STEPS_PER_UPDATE) {
+                simulated = elapsed - (elapsed - simulated) % step;
+                break;
+            }
+            simulated += step;
+            step((long) simulated);
+        }
+
+        alpha = (float) Math.min(1d, Math.max(0d, (elapsed - simulated) / step));
+    }
+
+    /**
+     * Runs the actions of all layers once at the given time, in nanoseconds.
+     */
+    private void step(long elapsed) {
+        setElapsed(elapsed);
+        for (JaoLayer layer : layers) {
+            layer.saveParameters();
+            layer.runActions(this.elapsed);
+            layer.cleanDone();
+        }
+    }
+
+    /**
+     * Makes the actions run at a fixed rate, no matter how often render() or
+     * update() are called. Setting it to zero goes back to running the actions
+     * once per call.
+     *
+     * @param updatesPerSecond How many times per second the actions should
+     * run, such as 60. Zero disables the fixed rate.
+     */
+    public void setUpdateRate(int updatesPerSecond) {
+        if (updatesPerSecond < 0) {
+            throw new IllegalArgumentException("The update rate cannot be negative.");
+        }
+        this.updateRate = updatesPerSecond;
+        this.step = updatesPerSecond > 0 ? 1e9d / updatesPerSecond : 0d;
+        this.started = false;
+        this.alpha = 0f;
+        layers.forEach(layer -> layer.setInterpolated(updatesPerSecond > 0));
+    }
+
+    /**
+     * Returns the fixed update rate.
+     *
+     * @return How many times per second the actions run, or zero in case they
+     * run once per frame.
+     */
+    public int getUpdateRate() {
+        return updateRate;
+    }
+
+    /**
+     * Returns how far the last update is between the last two fixed steps,
+     * used to interpolate the parameters when rendering.
+     *
+     * @return A value from 0 to 1. Always zero without a fixed update rate.
+     */
+    public float getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * Turns the decoupled mode on or off. It should be set before update() and
+     * render() start being called from different threads.
+     *
+     * @param decoupled Whether render() should only draw the snapshots
+     * published by update().
+     */
+    public void setDecoupled(boolean decoupled) {
+        this.decoupled = decoupled;
+        layers.forEach(layer -> layer.setDecoupled(decoupled));
+    }
+
+    /**
+     * Tells if render() only draws the snapshots published by update().
+     *
+     * @return Whether this instance is decoupled.
+     */
+    public boolean isDecoupled() {
+        return decoupled;
+    }
+
+    /**
+     * Updates the elapsed time and runs the actions of all layers, without
+     * rendering them. Used by JaoBatch and JaoWorld, that render the layers of
+     * many instances together.
+     */
+    void runActions() {
+        if (updateRate > 0) {
+            advance(clock.nowNanos());
+            return;
+        }
+        updateElapsed();
+        for (JaoLayer layer : layers) {
+            layer.runActions(elapsed);
+            layer.publishParameters();
+        }
+    }
+
+    /**
+     * Calls the renderer of each layer that has an event engaged, without
+     * running the actions. Used by JaoWorld, that runs the actions of many
+     * instances in parallel and renders them afterwards.
+     */
+    void renderLayers(Object... args) {
+        for (JaoLayer layer : layers) {
+            if (layer.getEvent() != null) {
+                layer.acquireParameters();
+                layer.getRenderer().render(layer, args);
+            }
+        }
+    }
+
+    /**
+     * Removes the actions that are done from all layers. Must be called after
+     * the layers have been rendered.
+     */
+    void cleanDone() {
+        for (JaoLayer layer : layers) {
+            layer.cleanDone();
+        }
+    }
+
     /**
      * Will call a reset for each layer and will also re-trigger the
      * initializers for the current event.
@@ -98,6 +358,9 @@ public class Jao {
         }
         clock.reset();
         elapsed = 0L;
+        elapsedNanos = 0L;
+        started = false;
+        alpha = 0f;
     }
 
     /**
@@ -117,7 +380,12 @@ public class Jao {
      * Updates the elapsed time since the start of the current event.
      */
     private void updateElapsed() {
-        elapsed = clock.now();
+        setElapsed(clock.nowNanos());
+    }
+
+    private void setElapsed(long nanos) {
+        elapsedNanos = nanos;
+        elapsed = nanos / IClock.NANOS_PER_MILLISECOND;
     }
 
     /**
@@ -129,6 +397,16 @@ public class Jao {
         return elapsed;
     }
 
+    /**
+     * Returns how much time has run since the last render() call, with the
+     * precision provided by the clock.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
     /**
      * Will tell if the current event is done or not. It will never return true
      * in case any of the actions being executed in the current event ignores
@@ -182,6 +460,16 @@ public class Jao {
         return clock.getLastFrameDelta();
     }
 
+    /**
+     * Get the amount of time elapsed between the last two frames, with the
+     * precision provided by the clock.
+     *
+     * @return The frame time in nanoseconds.
+     */
+    public long getLastFrameDeltaNanos() {
+        return clock.getLastFrameDeltaNanos();
+    }
+
     /**
      * Get the time in milliseconds in which the last frame was triggered.
      */
@@ -241,6 +529,18 @@ public class Jao {
         return extractor;
     }
 
+    /**
+     * Returns the template this instance was created from, if any. Creating new
+     * instances from the template is cheaper than cloning this instance, since
+     * the template does not have to copy the current state.
+     *
+     * @return An instance of JaoTemplate, or null in case this instance was not
+     * created from a template.
+     */
+    public JaoTemplate getTemplate() {
+        return template;
+    }
+
     /**
      * Makes a deep copy of an existing Jao instance without loading all data
      * again or repeating the json load process. Used in cases where you want
@@ -252,7 +552,7 @@ public class Jao {
      */
     @Override
     public Jao clone() {
-        Jao cloneJao = new Jao();
+        Jao cloneJao = new Jao(template);
         cloneJao.clock = clock.clone();
         cloneJao.extractor = extractor;
         cloneJao.layers = layers.stream().map(layer -> {
@@ -263,7 +563,14 @@ public class Jao {
             }
         }).collect(Collectors.toList());
         cloneJao.elapsed = elapsed;
+        cloneJao.elapsedNanos = elapsedNanos;
         cloneJao.scaleFactor = scaleFactor;
+        cloneJao.setDecoupled(decoupled);
+        cloneJao.setUpdateRate(updateRate);
+        cloneJao.simulated = simulated;
+        cloneJao.started = started;
+        cloneJao.alpha = alpha;
+        cloneJao.updated = updated;
         return cloneJao;
     }
 
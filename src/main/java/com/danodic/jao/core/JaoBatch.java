@@ -0,0 +1,121 @@
+package com.danodic.jao.core;
+
+import com.danodic.jao.model.DataTypeModel;
+import com.danodic.jao.renderer.IBatchRenderer;
+import com.danodic.jao.renderer.RenderBatch;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders many Jao instances through an IBatchRenderer. Instead of each layer
+ * calling its own renderer, the layers of all instances are grouped by their
+ * data type and each group is handed to the batch renderer in a single call.
+ *
+ * The layers are grouped by the instance of DataTypeModel they hold, which is
+ * shared by all layers created from the same JaoTemplate and by the clones of
+ * a Jao. Layers parsed separately are rendered in different batches, even when
+ * their data types have the same contents.
+ *
+ * The batches are rendered in the order their data type first shows up, and
+ * inside a batch the layers keep the order of the instances and layers. That
+ * means layers of different instances are no longer interleaved as they would
+ * be when rendering each instance on its own, which is the price for issuing
+ * one draw per asset.
+ *
+ * Layers without a data type (layers created by hand) cannot be grouped and are
+ * rendered by their own renderer, right before the batches.
+ */
+public class JaoBatch {
+
+    private final IBatchRenderer renderer;
+    private final Map<DataTypeModel, RenderBatch> batches;
+    private final List<RenderBatch> order;
+
+    /**
+     * @param renderer The renderer that will draw the batches.
+     */
+    public JaoBatch(IBatchRenderer renderer) {
+        this.renderer = renderer;
+        this.batches = new IdentityHashMap<>();
+        this.order = new ArrayList<>();
+    }
+
+    /**
+     * Runs the actions of all instances, renders them grouped by data type and
+     * then cleans up the actions that are done. It is the batched version of
+     * calling Jao.render() on each instance.
+     *
+     * @param jaos The instances to be rendered.
+     * @param args Arguments passed to the renderers.
+     */
+    public void render(Collection<Jao> jaos, Object... args) {
+
+        // Run the actions of all instances first, so that the parameters are
+        // up to date when the batches are filled.
+        for (Jao jao : jaos) {
+            jao.runActions();
+        }
+
+        renderBatches(jaos, args);
+    }
+
+    /**
+     * Renders the instances grouped by data type and cleans up the actions that
+     * are done, assuming the actions have already been run.
+     *
+     * @param jaos The instances to be rendered.
+     * @param args Arguments passed to the renderers.
+     */
+    void renderBatches(Collection<Jao> jaos, Object... args) {
+        for (Jao jao : jaos) {
+            for (JaoLayer layer : jao.getLayers()) {
+                if (layer.getEvent() == null) {
+                    continue;
+                }
+                layer.acquireParameters();
+                if (layer.getDataType() == null) {
+                    layer.getRenderer().render(layer, args);
+                    continue;
+                }
+                RenderBatch batch = batches.get(layer.getDataType());
+                if (batch == null) {
+                    batch = new RenderBatch(layer.getDataType());
+                    batches.put(layer.getDataType(), batch);
+                    order.add(batch);
+                }
+                batch.add(layer);
+            }
+        }
+
+        // Render the batches, dropping the ones that had no layers this frame
+        Iterator<RenderBatch> iterator = order.iterator();
+        while (iterator.hasNext()) {
+            RenderBatch batch = iterator.next();
+            if (batch.getLayerCount() == 0) {
+                iterator.remove();
+                batches.remove(batch.getDataType());
+                continue;
+            }
+            renderer.render(batch, args);
+            batch.clear();
+        }
+
+        for (Jao jao : jaos) {
+            jao.cleanDone();
+        }
+    }
+
+    /**
+     * Returns the renderer used to draw the batches.
+     *
+     * @return An instance of IBatchRenderer.
+     */
+    public IBatchRenderer getRenderer() {
+        return renderer;
+    }
+
+}
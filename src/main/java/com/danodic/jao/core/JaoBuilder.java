@@ -1,5 +1,7 @@
 package com.danodic.jao.core;
 
+import java.util.concurrent.Executor;
+
 import com.danodic.jao.exceptions.CannotFindJaoActionException;
 import com.danodic.jao.exceptions.CannotFindJaoInitializerException;
 import com.danodic.jao.exceptions.CannotFindJaoLibraryException;
@@ -22,7 +24,7 @@ public class JaoBuilder {
 			CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, ContentFileDoesNotExistException {
 
 		IExtractor extractor = ExtractorFactory.getExtractor(filename);
-		Jao jao = JaoParser.parseJson(extractor.getJson(), extractor, renderer);
+		Jao jao = JaoParser.parse(extractor, renderer);
 
 		return jao;
 	}
@@ -32,9 +34,67 @@ public class JaoBuilder {
 			CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
 			CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, ContentFileDoesNotExistException {
 
-		Jao jao = JaoParser.parseJson(extractor.getJson(), extractor, renderer);
+		Jao jao = JaoParser.parse(extractor, renderer);
 
 		return jao;
 	}
 
+	/**
+	 * Same as getJaoFromJson(), but builds the layers in parallel using the
+	 * executor provided. See JaoParser.parse(IExtractor, Class, Executor).
+	 */
+	public static Jao getJaoFromJson(String filename, Class<? extends IRenderer> renderer, Executor executor)
+			throws CannotLoadJaoFileException, CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton,
+			CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
+			CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, ContentFileDoesNotExistException {
+
+		IExtractor extractor = ExtractorFactory.getExtractor(filename);
+		return JaoParser.parse(extractor, renderer, executor);
+	}
+
+	public static Jao getJaoFromJson(IExtractor extractor, Class<? extends IRenderer> renderer, Executor executor)
+			throws CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
+			CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, ContentFileDoesNotExistException {
+
+		return JaoParser.parse(extractor, renderer, executor);
+	}
+
+	public static JaoTemplate getTemplateFromJson(String filename, Class<? extends IRenderer> renderer)
+			throws CannotLoadJaoFileException, CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton,
+			CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
+			CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, ContentFileDoesNotExistException {
+
+		IExtractor extractor = ExtractorFactory.getExtractor(filename);
+		return JaoParser.parseTemplate(extractor, renderer);
+	}
+
+	public static JaoTemplate getTemplateFromJson(IExtractor extractor, Class<? extends IRenderer> renderer)
+			throws CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
+			CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, ContentFileDoesNotExistException {
+
+		return JaoParser.parseTemplate(extractor, renderer);
+	}
+
+	/**
+	 * Same as getTemplateFromJson(), but compiles the layers in parallel using
+	 * the executor provided.
+	 */
+	public static JaoTemplate getTemplateFromJson(String filename, Class<? extends IRenderer> renderer,
+			Executor executor)
+			throws CannotLoadJaoFileException, CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton,
+			CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
+			CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, ContentFileDoesNotExistException {
+
+		IExtractor extractor = ExtractorFactory.getExtractor(filename);
+		return JaoParser.parseTemplate(extractor, renderer, executor);
+	}
+
+	public static JaoTemplate getTemplateFromJson(IExtractor extractor, Class<? extends IRenderer> renderer,
+			Executor executor)
+			throws CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
+			CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, ContentFileDoesNotExistException {
+
+		return JaoParser.parseTemplate(extractor, renderer, executor);
+	}
+
 }
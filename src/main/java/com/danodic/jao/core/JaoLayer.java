@@ -7,10 +7,10 @@ import java.util.Map;
 
 import com.danodic.jao.action.IInitializer;
 import com.danodic.jao.event.Event;
-import com.danodic.jao.event.EventAction;
 import com.danodic.jao.event.InitializerEvent;
 import com.danodic.jao.exceptions.CannotInstantiateJaoRenderer;
 import com.danodic.jao.exceptions.JaoEventNotFoundException;
+import com.danodic.jao.model.DataTypeModel;
 import com.danodic.jao.renderer.IRenderer;
 import com.danodic.jao.time.IClock;
 import java.util.Map.Entry;
@@ -43,6 +43,17 @@ public class JaoLayer {
     private List<IInitializer> initializers;
     private Event currentEvent;
     private LayerParameters parameters;
+    private DataTypeModel dataType;
+
+    // Only used when the parent Jao is decoupled, see Jao.setDecoupled()
+    private volatile ParameterBuffer snapshots;
+
+    // Only used when the parent Jao has a fixed update rate, see
+    // Jao.setUpdateRate()
+    private LayerParameters previousParameters;
+    private LayerParameters interpolatedParameters;
+
+    private LayerParameters renderParameters;
 
     private static final String DEFAULT_EVENT_NAME = "default";
 
@@ -57,6 +68,7 @@ public class JaoLayer {
         }
 
         JaoLayer clone = new JaoLayer(jao, cloneRenderer);
+        clone.dataType = dataType;
 
         // Clone each event and find the current event
         Event cloneCurrentEvent = null;
@@ -73,6 +85,7 @@ public class JaoLayer {
         clone.currentEvent = cloneCurrentEvent;
         clone.initializers = initializers.stream().map(init -> init.clone()).collect(Collectors.toList());
         clone.parameters.clone();
+        clone.bindAll();
 
         return clone;
     }
@@ -84,6 +97,7 @@ public class JaoLayer {
         initializers = new ArrayList<>();
         parameters = new LayerParameters();
         renderer = rendererImpl;
+        bind(renderer);
 
         // Current event always start as null. When selecting the action to run
         // the library will try to engage the specific action.
@@ -120,6 +134,141 @@ public class JaoLayer {
         return parameters;
     }
 
+    /**
+     * Will return the parameters the renderer should draw. When the parent Jao
+     * is decoupled, that is the last snapshot published by Jao.update(), which
+     * is never changed by the actions while it is being rendered. When the
+     * parent Jao has a fixed update rate, the floats and doubles are
+     * interpolated between the last two updates, decoupled or not. Otherwise
+     * it is the same as getParameters().
+     *
+     * Renderers that may run decoupled should read their values from here.
+     *
+     * @return The parameters to be rendered.
+     */
+    public LayerParameters getRenderParameters() {
+        return renderParameters == null ? parameters : renderParameters;
+    }
+
+    /**
+     * Turns the snapshots of the parameters on or off. When turned on, the
+     * current parameters are published right away so that the render thread
+     * always has something to draw.
+     *
+     * @param decoupled Whether the layer is updated and rendered separately.
+     */
+    void setDecoupled(boolean decoupled) {
+        if (!decoupled) {
+            snapshots = null;
+            renderParameters = null;
+            return;
+        }
+        if (snapshots == null) {
+            ParameterBuffer buffer = new ParameterBuffer();
+            buffer.publish(parameters, previousParameters, jao.getAlpha());
+            renderParameters = buffer.acquire().getParameters();
+            snapshots = buffer;
+        }
+    }
+
+    /**
+     * Publishes a snapshot of the current parameters to the render thread,
+     * along with the ones of the previous step when interpolated. Does nothing
+     * in case the layer is not decoupled.
+     */
+    void publishParameters() {
+        ParameterBuffer buffer = snapshots;
+        if (buffer != null) {
+            buffer.publish(parameters, previousParameters, jao.getAlpha());
+        }
+    }
+
+    /**
+     * Turns the interpolation of the parameters on or off.
+     *
+     * @param interpolated Whether the layer is updated at a fixed rate.
+     */
+    void setInterpolated(boolean interpolated) {
+        if (!interpolated) {
+            previousParameters = null;
+            interpolatedParameters = null;
+            if (snapshots == null) {
+                renderParameters = null;
+            }
+            return;
+        }
+        if (previousParameters == null) {
+            previousParameters = new LayerParameters();
+            interpolatedParameters = new LayerParameters();
+            parameters.copyTo(previousParameters);
+        }
+    }
+
+    /**
+     * Keeps a copy of the current parameters before the actions run, so that
+     * they can be interpolated with the result. Does nothing in case the layer
+     * is not interpolated.
+     */
+    void saveParameters() {
+        if (previousParameters != null) {
+            parameters.copyTo(previousParameters);
+        }
+    }
+
+    /**
+     * Prepares the parameters to be returned by getRenderParameters() until
+     * the next call. When decoupled, picks up the latest snapshot published.
+     * When interpolated, blends the last two updates using the alpha of the
+     * parent Jao, or the one published with the snapshot. Called once per
+     * frame, right before the renderer.
+     */
+    void acquireParameters() {
+        ParameterBuffer buffer = snapshots;
+        LayerParameters interpolated = interpolatedParameters;
+        if (buffer != null) {
+            ParameterBuffer.Snapshot snapshot = buffer.acquire();
+            if (snapshot.isInterpolated() && interpolated != null) {
+                interpolateParameters(snapshot.getPreviousParameters(), snapshot.getParameters(),
+                        snapshot.getAlpha(), interpolated);
+            } else {
+                renderParameters = snapshot.getParameters();
+            }
+        } else if (interpolated != null) {
+            interpolateParameters(previousParameters, parameters, jao.getAlpha(), interpolated);
+        }
+    }
+
+    /**
+     * Writes the parameters into the interpolated view. Floats and doubles,
+     * whether they are bound to a slot or written by name, are blended between
+     * the previous and the current update. Everything else takes the current
+     * value, as integers and longs are usually counters or indexes that should
+     * not take values in between.
+     *
+     * @param from The parameters of the previous update.
+     * @param to The parameters of the current update.
+     * @param alpha How far the render time is between the previous and the
+     * current update, from 0 to 1.
+     * @param target Where the blended parameters are written.
+     */
+    private void interpolateParameters(LayerParameters from, LayerParameters to, float alpha,
+            LayerParameters target) {
+        to.copyTo(target);
+
+        // Slots created during the last update have no previous value yet
+        int slots = Math.min(from.getSlotCount(), to.getSlotCount());
+        for (int slot = 0; slot < slots; slot++) {
+            if (to.isFloatSlot(slot) && from.isFloatSlot(slot)) {
+                float previous = from.getFloat(slot);
+                target.setFloat(slot, previous + (to.getFloat(slot) - previous) * alpha);
+            } else if (to.isDoubleValue(slot) && from.isDoubleValue(slot)) {
+                double previous = from.getDoubleValue(slot);
+                target.put(to.getSlotName(slot), previous + (to.getDoubleValue(slot) - previous) * alpha);
+            }
+        }
+        renderParameters = target;
+    }
+
     /**
      * Set all parameters for the layer. Overwrites existing parameters.
      *
@@ -127,6 +276,7 @@ public class JaoLayer {
      */
     public void setParameters(LayerParameters parameters) {
         this.parameters = parameters;
+        bindAll();
     }
 
     /**
@@ -198,6 +348,7 @@ public class JaoLayer {
      */
     public void addInitializers(InitializerEvent initializer) {
         this.initializers.addAll(initializer);
+        initializer.forEach(this::bind);
         initialize();
     }
 
@@ -208,6 +359,7 @@ public class JaoLayer {
      */
     public void addEvents(Map<String, Event> events) {
         this.events.putAll(events);
+        events.values().forEach(this::bindEvent);
         if (this.events.containsKey(DEFAULT_EVENT_NAME)) {
             this.currentEvent = this.events.get(DEFAULT_EVENT_NAME);
         }
@@ -241,6 +393,27 @@ public class JaoLayer {
      */
     public void setRenderer(IRenderer renderer) {
         this.renderer = renderer;
+        bind(renderer);
+    }
+
+    /**
+     * Will return the data type this layer was created with.
+     *
+     * @return The DataTypeModel from the JSON file, or null in case the layer
+     * was created by hand.
+     */
+    public DataTypeModel getDataType() {
+        return dataType;
+    }
+
+    /**
+     * Will set the data type of this layer. It does not change the renderer,
+     * it only records which data type the renderer has been loaded with.
+     *
+     * @param dataType The DataTypeModel from the JSON file.
+     */
+    public void setDataType(DataTypeModel dataType) {
+        this.dataType = dataType;
     }
 
     /**
@@ -251,11 +424,37 @@ public class JaoLayer {
      * event execution.
      */
     public void render(long elapsed, Object... args) {
-        for (EventAction action : currentEvent.getRunningItems(elapsed)) {
-            action.run();
-        }
+        runActions(elapsed);
         renderer.render(this, args);
-        currentEvent.cleanDone();
+        cleanDone();
+    }
+
+    /**
+     * Will start the actions that are due and run all actions of the current
+     * event, without calling the renderer. Will not do anything in case the
+     * current event is null.
+     *
+     * @param elapsed How much has elapsed since the beginning of the current
+     * event execution.
+     */
+    public void runActions(long elapsed) {
+        if (currentEvent == null) {
+            return;
+        }
+        currentEvent.getRunningItems(elapsed);
+        for (int i = 0; i < currentEvent.getRunningCount(); i++) {
+            currentEvent.getRunningItem(i).run();
+        }
+    }
+
+    /**
+     * Will remove the actions that are done from the current event. It must be
+     * called after the layer has been rendered.
+     */
+    public void cleanDone() {
+        if (currentEvent != null) {
+            currentEvent.cleanDone();
+        }
     }
 
     /**
@@ -266,6 +465,7 @@ public class JaoLayer {
      */
     public void addEvent(String eventName, Event event) {
         events.put(eventName, event);
+        bindEvent(event);
         if (eventName.equals(DEFAULT_EVENT_NAME)) {
             currentEvent = event;
         }
@@ -302,6 +502,17 @@ public class JaoLayer {
         return jao.getElapsed();
     }
 
+    /**
+     * Get how much time has elapsed since the beginning of the current event,
+     * with the precision provided by the clock. Useful for actions that must
+     * stay in sync over long periods, such as beat-synced animations.
+     *
+     * @return A long with the amount of nanoseconds elapsed.
+     */
+    public long getElapsedNanos() {
+        return jao.getElapsedNanos();
+    }
+
     /**
      * Will return how much time has elapsed between the last two frames.
      *
@@ -331,9 +542,43 @@ public class JaoLayer {
      */
     public void addInitializer(IInitializer initializer) {
         initializers.add(initializer);
+        bind(initializer);
         initialize();
     }
 
+    /**
+     * Lets an action, initializer or renderer resolve the parameters it uses
+     * into slots, in case it implements IParameterBinder.
+     *
+     * @param element The element being added to the layer.
+     */
+    private void bind(Object element) {
+        if (element instanceof IParameterBinder) {
+            ((IParameterBinder) element).bindParameters(parameters);
+        }
+    }
+
+    /**
+     * Binds all actions from an event. Actions added to the event after it has
+     * been added to the layer are not bound. Events created from a template
+     * bind their actions when they start.
+     *
+     * @param event The event being added to the layer.
+     */
+    private void bindEvent(Event event) {
+        event.forEachAction(action -> bind(action.getAction()));
+    }
+
+    /**
+     * Binds every element of the layer again. Used when the parameters are
+     * replaced, as the slots of the old parameters are not valid anymore.
+     */
+    private void bindAll() {
+        bind(renderer);
+        initializers.forEach(this::bind);
+        events.values().forEach(this::bindEvent);
+    }
+
     /**
      * Returns the instance of clock currently being used by the main animation.
      *
@@ -0,0 +1,81 @@
+package com.danodic.jao.core;
+
+import com.danodic.jao.exceptions.CannotInstantiateJaoRenderer;
+import com.danodic.jao.exceptions.JaoCloneException;
+import com.danodic.jao.extractor.IExtractor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A frozen, parsed version of a .jao file. It holds everything that is the same
+ * across all copies of an animation: the layers with their data types, the
+ * compiled event timelines and the action, initializer and renderer prototypes.
+ *
+ * Each call to newInstance() returns a new Jao without parsing the file again,
+ * loading the data types again or sorting the timelines again. The events of
+ * each instance share the timelines of the template and only hold a cursor
+ * into them: an action is cloned from its prototype when it starts, as it
+ * keeps track of its own progress, and dropped once it is done. The renderers
+ * and initializers are still cloned for each instance, one per layer, as they
+ * may keep state of their own, such as the slots of the layer parameters they
+ * are bound to (see IParameterBinder).
+ *
+ * The template itself is never changed after it is built, so a single instance
+ * can be shared across threads, as long as the clone() methods of the actions,
+ * initializers and renderer only read from the prototype.
+ *
+ * Templates are obtained from JaoParser.parseTemplate() or from the JaoBuilder.
+ */
+public final class JaoTemplate {
+
+    private final List<LayerTemplate> layers;
+    private final IExtractor extractor;
+
+    /**
+     * @param layers The layer templates, in the order they are rendered.
+     * @param extractor The extractor holding the data for this animation.
+     */
+    public JaoTemplate(List<LayerTemplate> layers, IExtractor extractor) {
+        this.layers = Collections.unmodifiableList(new ArrayList<>(layers));
+        this.extractor = extractor;
+    }
+
+    /**
+     * Creates a new, independent Jao instance from this template.
+     *
+     * @return A new instance of Jao, ready to be rendered.
+     * @throws JaoCloneException In case one of the renderers cannot be cloned.
+     */
+    public Jao newInstance() {
+        Jao jao = new Jao(this);
+        jao.setExtractor(extractor);
+        for (LayerTemplate layer : layers) {
+            try {
+                jao.addLayer(layer.newLayer(jao));
+            } catch (CannotInstantiateJaoRenderer e) {
+                throw new JaoCloneException(e);
+            }
+        }
+        return jao;
+    }
+
+    /**
+     * Returns the layer templates in the order they are rendered.
+     *
+     * @return An unmodifiable list of LayerTemplate.
+     */
+    public List<LayerTemplate> getLayers() {
+        return layers;
+    }
+
+    /**
+     * Returns the extractor shared by all instances created from this template.
+     *
+     * @return An instance of IExtractor.
+     */
+    public IExtractor getExtractor() {
+        return extractor;
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.danodic.jao.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Owns a collection of Jao instances and advances them all at once, spreading
+ * the work across the cores of the machine.
+ *
+ * Each frame is split in two phases. In the action phase, the instances are
+ * split in chunks and each chunk runs the actions of its instances in a
+ * ForkJoinPool. Each instance only touches its own layers and parameters, so
+ * the chunks do not have to synchronize with each other. In the render phase,
+ * the renderers are called on the caller thread, in the order the instances
+ * were added, so rendering stays deterministic and renderers do not have to be
+ * thread-safe.
+ *
+ * Actions must not share mutable state across instances for this to be safe.
+ * In particular, anything stored in the SharedResourcePool must be read-only
+ * by the time the world starts rendering.
+ *
+ * The list of instances must only be changed from the thread that calls
+ * render(), between frames.
+ */
+public class JaoWorld {
+
+    private static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private final List<Jao> instances;
+    private final ForkJoinPool pool;
+    private int chunkSize;
+
+    /**
+     * Creates a world that runs the action phase in the common ForkJoinPool.
+     */
+    public JaoWorld() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool The pool used to run the action phase.
+     */
+    public JaoWorld(ForkJoinPool pool) {
+        this.pool = pool;
+        this.instances = new ArrayList<>();
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+    }
+
+    /**
+     * Adds an instance to the world. Instances are rendered in the order they
+     * are added.
+     *
+     * @param jao The instance to be added.
+     */
+    public void add(Jao jao) {
+        instances.add(jao);
+    }
+
+    /**
+     * Removes an instance from the world.
+     *
+     * @param jao The instance to be removed.
+     * @return Whether the instance was in the world or not.
+     */
+    public boolean remove(Jao jao) {
+        return instances.remove(jao);
+    }
+
+    /**
+     * Removes all instances that are done.
+     */
+    public void removeDone() {
+        instances.removeIf(Jao::isDone);
+    }
+
+    /**
+     * Returns the instances in this world.
+     *
+     * @return An unmodifiable view of the instances, in the order they are
+     * rendered.
+     */
+    public List<Jao> getInstances() {
+        return Collections.unmodifiableList(instances);
+    }
+
+    /**
+     * Sets how many instances are handled by each task in the action phase.
+     * Smaller chunks balance better across cores, bigger chunks have less
+     * scheduling overhead.
+     *
+     * @param chunkSize The amount of instances per task, at least 1.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size must be at least 1.");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Runs the actions of all instances in parallel and then renders them, in
+     * order, on the caller thread.
+     *
+     * @param args Arguments passed to the renderers.
+     */
+    public void render(Object... args) {
+        runActions();
+        for (Jao jao : instances) {
+            jao.renderLayers(args);
+            jao.cleanDone();
+        }
+    }
+
+    /**
+     * Runs the actions of all instances in parallel and then renders them
+     * through a JaoBatch, on the caller thread.
+     *
+     * @param batch The batch used to render the instances.
+     * @param args Arguments passed to the batch renderer.
+     */
+    public void render(JaoBatch batch, Object... args) {
+        runActions();
+        batch.renderBatches(instances, args);
+    }
+
+    /**
+     * Runs the action phase for all instances and waits for it to finish.
+     */
+    private void runActions() {
+        if (instances.size() <= chunkSize) {
+            for (Jao jao : instances) {
+                jao.runActions();
+            }
+            return;
+        }
+        pool.invoke(new ActionPhase(0, instances.size()));
+    }
+
+    /**
+     * Runs the actions of a range of instances, splitting the range in halves
+     * until it fits in a single chunk.
+     */
+    private class ActionPhase extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+
+        ActionPhase(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= chunkSize) {
+                for (int i = start; i < end; i++) {
+                    instances.get(i).runActions();
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new ActionPhase(start, middle), new ActionPhase(middle, end));
+        }
+
+    }
+
+}
@@ -1,79 +1,675 @@
 package com.danodic.jao.core;
 
+import com.danodic.jao.exceptions.InvalidJaoParameterTypeException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
- * This is just a hash map with some custom methods to make it more practical to
- * use. This hash map is used to holde the parameters of a given layer.
+ * A map with some custom methods to make it more practical to use. This map is
+ * used to hold the parameters of a given layer.
+ *
+ * Every parameter is kept in a slot. A slot is an integer index resolved once
+ * from the parameter name, and floats, integers, longs and booleans are kept in
+ * primitive arrays, while other values are kept as objects. Numeric and boolean
+ * parameters can be bound to a slot of a given type (usually when the layer is
+ * built, see IParameterBinder), so that actions and renderers that use the slot
+ * accessors skip the hashing and the boxing of the map entirely.
+ *
+ * The map API reads and writes the same slots, so values written through a
+ * slot are seen by name right away and the other way around. A parameter that
+ * is not bound takes the type of the last value written by name. A value of
+ * another type written by name into a bound slot is kept as it is for the map,
+ * and converted for the slot accessors.
+ *
+ * Slots are never dropped, so the same names keep the same slots even when
+ * parameters are removed. The whole state can be copied into another instance
+ * with copyTo(), which is used to take snapshots of the parameters for the
+ * render thread.
  */
-@SuppressWarnings("serial")
-public class LayerParameters extends HashMap<String, Object> {
+public class LayerParameters extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = 2740532839161052316L;
+
+    private enum SlotType {
+        FLOAT, INTEGER, LONG, BOOLEAN, OBJECT
+    }
+
+    private static final int INITIAL_SLOTS = 8;
+
+    private Map<String, Integer> slotIndex;
+    private String[] slotNames;
+    private SlotType[] slotTypes;
+    private int slotCount;
+
+    // Tells which slots have been bound to a type, instead of following the
+    // values written by name.
+    private boolean[] boundSlots;
+
+    private float[] floats;
+    private int[] ints;
+    private long[] longs;
+    private boolean[] booleans;
+
+    // Values that are not held in the primitive arrays, either because of
+    // their type or because they do not match the type of a bound slot.
+    private Object[] objects;
+    private boolean[] boxedSlots;
+
+    // Tells which slots have a value, as removed parameters keep their slot.
+    private boolean[] presentSlots;
+    private int size;
+
+    // The instance the slot layout was last copied from by copyTo()
+    private transient LayerParameters copiedFrom;
+
+    private transient Set<Entry<String, Object>> entrySet;
+
+    public LayerParameters() {
+        slotIndex = new HashMap<>();
+        slotNames = new String[INITIAL_SLOTS];
+        slotTypes = new SlotType[INITIAL_SLOTS];
+        slotCount = 0;
+        boundSlots = new boolean[INITIAL_SLOTS];
+        floats = new float[INITIAL_SLOTS];
+        ints = new int[INITIAL_SLOTS];
+        longs = new long[INITIAL_SLOTS];
+        booleans = new boolean[INITIAL_SLOTS];
+        objects = new Object[INITIAL_SLOTS];
+        boxedSlots = new boolean[INITIAL_SLOTS];
+        presentSlots = new boolean[INITIAL_SLOTS];
+        size = 0;
+        copiedFrom = null;
+    }
 
     /**
      * Will return the value of a given parameter and will cast it to String.
      */
     public String getAsString(String paramName) {
-        return (String) (containsKey(paramName) ? get(paramName) : "");
+        Object value = get(paramName);
+        return (String) (value != null || containsKey(paramName) ? value : "");
     }
 
     /**
      * Will return the value of a given parameter and will cast it to Integer.
      */
     public Integer getAsInteger(String paramName) {
-        return (Integer) (containsKey(paramName) ? get(paramName) : 0);
+        int slot = getSlot(paramName, SlotType.INTEGER);
+        if (slot >= 0) {
+            return ints[slot];
+        }
+        Object value = get(paramName);
+        return (Integer) (value != null || containsKey(paramName) ? value : 0);
     }
 
     /**
      * Will return the value of a given parameter and will cast it to Long.
      */
     public Long getAsLong(String paramName) {
-        return (Long) (containsKey(paramName) ? get(paramName) : 0l);
+        int slot = getSlot(paramName, SlotType.LONG);
+        if (slot >= 0) {
+            return longs[slot];
+        }
+        Object value = get(paramName);
+        return (Long) (value != null || containsKey(paramName) ? value : 0l);
     }
 
     /**
      * Will return the value of a given parameter and will cast it to Float.
      */
     public Float getAsFloat(String paramName) {
-        return (Float) (containsKey(paramName) ? get(paramName) : 0f);
+        int slot = getSlot(paramName, SlotType.FLOAT);
+        if (slot >= 0) {
+            return floats[slot];
+        }
+        Object value = get(paramName);
+        return (Float) (value != null || containsKey(paramName) ? value : 0f);
     }
 
     /**
      * Will return the value of a given parameter and will cast it to Double.
      */
     public Double getAsDouble(String paramName) {
-        return (Double) (containsKey(paramName) ? get(paramName) : 0d);
+        Object value = get(paramName);
+        return (Double) (value != null || containsKey(paramName) ? value : 0d);
     }
 
     /**
      * Will return the value of a given parameter and will cast it to Boolean.
      */
     public Boolean getAsBoolean(String paramName) {
-        return (Boolean) (containsKey(paramName) ? get(paramName) : false);
+        int slot = getSlot(paramName, SlotType.BOOLEAN);
+        if (slot >= 0) {
+            return booleans[slot];
+        }
+        Object value = get(paramName);
+        return (Boolean) (value != null || containsKey(paramName) ? value : false);
+    }
+
+    /**
+     * Binds a parameter to a float slot. Binding the same name again returns
+     * the same slot. In case the parameter already has a value, it is copied
+     * into the slot.
+     *
+     * @param paramName Name of the parameter.
+     * @return The slot to be used with getFloat() and setFloat().
+     * @throws InvalidJaoParameterTypeException In case the parameter is already
+     * bound to a slot of a different type.
+     */
+    public int floatSlot(String paramName) {
+        return bind(paramName, SlotType.FLOAT);
+    }
+
+    /**
+     * Binds a parameter to an integer slot. Works like floatSlot().
+     *
+     * @param paramName Name of the parameter.
+     * @return The slot to be used with getInt() and setInt().
+     */
+    public int intSlot(String paramName) {
+        return bind(paramName, SlotType.INTEGER);
+    }
+
+    /**
+     * Binds a parameter to a long slot. Works like floatSlot().
+     *
+     * @param paramName Name of the parameter.
+     * @return The slot to be used with getLong() and setLong().
+     */
+    public int longSlot(String paramName) {
+        return bind(paramName, SlotType.LONG);
+    }
+
+    /**
+     * Binds a parameter to a boolean slot. Works like floatSlot().
+     *
+     * @param paramName Name of the parameter.
+     * @return The slot to be used with getBoolean() and setBoolean().
+     */
+    public int booleanSlot(String paramName) {
+        return bind(paramName, SlotType.BOOLEAN);
+    }
+
+    /**
+     * Returns the slot of a parameter, which it has once it is bound or
+     * written by name.
+     *
+     * @param paramName Name of the parameter.
+     * @return The slot, or -1 in case the parameter has no slot.
+     */
+    public int getSlot(String paramName) {
+        Integer slot = slotIndex.get(paramName);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Returns how many slots have been created so far.
+     *
+     * @return The amount of slots.
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Returns the name of the parameter kept in a slot.
+     *
+     * @param slot A slot returned by getSlot() or by one of the binding
+     * methods.
+     * @return The name of the parameter.
+     */
+    public String getSlotName(int slot) {
+        return slotNames[slot];
+    }
+
+    /**
+     * Tells if a slot holds a float value.
+     *
+     * @param slot A slot returned by getSlot() or by one of the binding
+     * methods.
+     * @return True in case the slot was bound with floatSlot(), or holds a
+     * Float written by name.
+     */
+    public boolean isFloatSlot(int slot) {
+        return slotTypes[slot] == SlotType.FLOAT && !boxedSlots[slot];
+    }
+
+    /**
+     * Tells if a slot holds a Double written by name, which is kept as an
+     * object. Used to interpolate the parameters.
+     */
+    boolean isDoubleValue(int slot) {
+        return presentSlots[slot] && boxedSlots[slot] && objects[slot] instanceof Double;
+    }
+
+    /**
+     * Returns the Double held by a slot. See isDoubleValue().
+     */
+    double getDoubleValue(int slot) {
+        return (Double) objects[slot];
+    }
+
+    public float getFloat(int slot) {
+        return floats[slot];
+    }
+
+    public void setFloat(int slot, float value) {
+        floats[slot] = value;
+        markPresent(slot);
+    }
+
+    public int getInt(int slot) {
+        return ints[slot];
+    }
+
+    public void setInt(int slot, int value) {
+        ints[slot] = value;
+        markPresent(slot);
+    }
+
+    public long getLong(int slot) {
+        return longs[slot];
+    }
+
+    public void setLong(int slot, long value) {
+        longs[slot] = value;
+        markPresent(slot);
+    }
+
+    public boolean getBoolean(int slot) {
+        return booleans[slot];
+    }
+
+    public void setBoolean(int slot, boolean value) {
+        booleans[slot] = value;
+        markPresent(slot);
+    }
+
+    private void markPresent(int slot) {
+        objects[slot] = null;
+        boxedSlots[slot] = false;
+        if (!presentSlots[slot]) {
+            presentSlots[slot] = true;
+            size++;
+        }
+    }
+
+    /**
+     * Returns the slot for the given name in case it holds a value of the
+     * given type, else returns -1 so that the caller reads it as an object.
+     */
+    private int getSlot(String paramName, SlotType type) {
+        Integer slot = slotIndex.get(paramName);
+        return slot != null && slotTypes[slot] == type && presentSlots[slot] && !boxedSlots[slot] ? slot : -1;
+    }
+
+    private int bind(String paramName, SlotType type) {
+        Integer existing = slotIndex.get(paramName);
+        if (existing == null) {
+            int slot = createSlot(paramName, type);
+            boundSlots[slot] = true;
+            return slot;
+        }
+
+        if (boundSlots[existing]) {
+            if (slotTypes[existing] != type) {
+                throw new InvalidJaoParameterTypeException(paramName, slotTypes[existing].name(), type.name());
+            }
+            return existing;
+        }
+
+        // Bring the current value into the slot, if there is one
+        int slot = existing;
+        boundSlots[slot] = true;
+        if (presentSlots[slot]) {
+            Object value = readSlot(slot);
+            slotTypes[slot] = type;
+            writeSlot(slot, value);
+        } else {
+            slotTypes[slot] = type;
+        }
+        return slot;
+    }
+
+    private int createSlot(String paramName, SlotType type) {
+        if (slotCount == slotNames.length) {
+            int capacity = slotCount * 2;
+            slotNames = Arrays.copyOf(slotNames, capacity);
+            slotTypes = Arrays.copyOf(slotTypes, capacity);
+            boundSlots = Arrays.copyOf(boundSlots, capacity);
+            floats = Arrays.copyOf(floats, capacity);
+            ints = Arrays.copyOf(ints, capacity);
+            longs = Arrays.copyOf(longs, capacity);
+            booleans = Arrays.copyOf(booleans, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+            boxedSlots = Arrays.copyOf(boxedSlots, capacity);
+            presentSlots = Arrays.copyOf(presentSlots, capacity);
+        }
+
+        int slot = slotCount++;
+        slotNames[slot] = paramName;
+        slotTypes[slot] = type;
+        slotIndex.put(paramName, slot);
+        return slot;
+    }
+
+    private static SlotType getType(Object value) {
+        if (value instanceof Float) {
+            return SlotType.FLOAT;
+        } else if (value instanceof Integer) {
+            return SlotType.INTEGER;
+        } else if (value instanceof Long) {
+            return SlotType.LONG;
+        } else if (value instanceof Boolean) {
+            return SlotType.BOOLEAN;
+        }
+        return SlotType.OBJECT;
     }
 
     /**
-     * Creates a deep copy of this map.
+     * Writes a value given by name into its slot. Slots that are not bound
+     * take the type of the value.
+     */
+    private void writeSlot(int slot, Object value) {
+        if (!boundSlots[slot]) {
+            slotTypes[slot] = getType(value);
+        }
+
+        switch (slotTypes[slot]) {
+            case FLOAT:
+                floats[slot] = value instanceof Number ? ((Number) value).floatValue() : 0f;
+                break;
+            case INTEGER:
+                ints[slot] = value instanceof Number ? ((Number) value).intValue() : 0;
+                break;
+            case LONG:
+                longs[slot] = value instanceof Number ? ((Number) value).longValue() : 0L;
+                break;
+            case BOOLEAN:
+                booleans[slot] = value instanceof Boolean ? (Boolean) value : false;
+                break;
+            default:
+                break;
+        }
+
+        boolean boxed = getType(value) != slotTypes[slot] || slotTypes[slot] == SlotType.OBJECT;
+        objects[slot] = boxed ? value : null;
+        boxedSlots[slot] = boxed;
+        if (!presentSlots[slot]) {
+            presentSlots[slot] = true;
+            size++;
+        }
+    }
+
+    private Object readSlot(int slot) {
+        if (boxedSlots[slot]) {
+            return objects[slot];
+        }
+        switch (slotTypes[slot]) {
+            case FLOAT:
+                return floats[slot];
+            case INTEGER:
+                return ints[slot];
+            case LONG:
+                return longs[slot];
+            default:
+                return booleans[slot];
+        }
+    }
+
+    private void clearSlot(int slot) {
+        floats[slot] = 0f;
+        ints[slot] = 0;
+        longs[slot] = 0L;
+        booleans[slot] = false;
+        objects[slot] = null;
+        boxedSlots[slot] = false;
+        if (presentSlots[slot]) {
+            presentSlots[slot] = false;
+            size--;
+        }
+    }
+
+    /**
+     * Copies all parameters into another instance. The values are copied as
+     * arrays, and the slot layout is only copied in case the target came from
+     * somewhere else or new slots were created, so taking a snapshot of a
+     * layer does not allocate.
      *
-     * @return A deep copy of this map.
+     * @param target The instance that will receive the parameters.
+     */
+    public void copyTo(LayerParameters target) {
+        if (target == this) {
+            return;
+        }
+
+        // Slots are only ever appended, so the layout only has to be copied in
+        // case the target came from somewhere else or new slots were created.
+        if (target.copiedFrom != this || target.slotCount != slotCount) {
+            target.slotIndex = new HashMap<>(slotIndex);
+            target.slotNames = slotNames.clone();
+            target.slotCount = slotCount;
+            target.slotTypes = new SlotType[slotNames.length];
+            target.boundSlots = new boolean[slotNames.length];
+            target.floats = new float[slotNames.length];
+            target.ints = new int[slotNames.length];
+            target.longs = new long[slotNames.length];
+            target.booleans = new boolean[slotNames.length];
+            target.objects = new Object[slotNames.length];
+            target.boxedSlots = new boolean[slotNames.length];
+            target.presentSlots = new boolean[slotNames.length];
+            target.copiedFrom = this;
+        }
+
+        // Slots that are not bound may change their type
+        System.arraycopy(slotTypes, 0, target.slotTypes, 0, slotCount);
+        System.arraycopy(boundSlots, 0, target.boundSlots, 0, slotCount);
+        System.arraycopy(floats, 0, target.floats, 0, slotCount);
+        System.arraycopy(ints, 0, target.ints, 0, slotCount);
+        System.arraycopy(longs, 0, target.longs, 0, slotCount);
+        System.arraycopy(booleans, 0, target.booleans, 0, slotCount);
+        System.arraycopy(objects, 0, target.objects, 0, slotCount);
+        System.arraycopy(boxedSlots, 0, target.boxedSlots, 0, slotCount);
+        System.arraycopy(presentSlots, 0, target.presentSlots, 0, slotCount);
+        target.size = size;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Integer existing = slotIndex.get(key);
+        int slot = existing != null ? existing : createSlot(key, getType(value));
+        Object previous = presentSlots[slot] ? readSlot(slot) : null;
+        writeSlot(slot, value);
+        return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        Integer slot = slotIndex.get(key);
+        if (slot == null || !presentSlots[slot]) {
+            return null;
+        }
+        Object previous = readSlot(slot);
+        clearSlot(slot);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        for (int slot = 0; slot < slotCount; slot++) {
+            clearSlot(slot);
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        Integer slot = slotIndex.get(key);
+        return slot != null && presentSlots[slot] ? readSlot(slot) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Integer slot = slotIndex.get(key);
+        return slot != null && presentSlots[slot];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a view of the parameters backed by the slots. Changes made
+     * through the view, its iterator or its entries write the slots the same
+     * way as the map methods do.
+     */
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            LayerParameters.this.clear();
+        }
+
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private int next = nextPresent(0);
+        private int current = -1;
+
+        private int nextPresent(int slot) {
+            while (slot < slotCount && !presentSlots[slot]) {
+                slot++;
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < slotCount;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = nextPresent(next + 1);
+            return new SlotEntry(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0 || !presentSlots[current]) {
+                throw new IllegalStateException();
+            }
+            clearSlot(current);
+        }
+
+    }
+
+    private final class SlotEntry implements Entry<String, Object> {
+
+        private final int slot;
+
+        private SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public String getKey() {
+            return slotNames[slot];
+        }
+
+        @Override
+        public Object getValue() {
+            return readSlot(slot);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previous = readSlot(slot);
+            writeSlot(slot, value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) other;
+            Object value = getValue();
+            return getKey().equals(entry.getKey())
+                    && (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+
+    }
+
+    /**
+     * Creates a copy of this map, along with its slots. The values are
+     * shared, which is safe for the boxed primitives and the strings that are
+     * usually kept here.
+     *
+     * @return A copy of this map.
      */
     @Override
     public LayerParameters clone() {
         LayerParameters clone = new LayerParameters();
-        this.forEach((key, value) -> {
-            if (value instanceof Integer) {
-                clone.put(key, this.getAsInteger(key));
-            } else if (value instanceof Long) {
-                clone.put(key, this.getAsLong(key));
-            } else if (value instanceof Float) {
-                clone.put(key, this.getAsFloat(key));
-            } else if (value instanceof Double) {
-                clone.put(key, this.getAsDouble(key));
-            } else if (value instanceof Boolean) {
-                clone.put(key, this.getAsBoolean(key));
-            } else if (value instanceof String) {
-                clone.put(key, this.getAsString(key));
-            }
-        });
+        clone.slotIndex = new HashMap<>(slotIndex);
+        clone.slotNames = slotNames.clone();
+        clone.slotTypes = slotTypes.clone();
+        clone.slotCount = slotCount;
+        clone.boundSlots = boundSlots.clone();
+        clone.floats = floats.clone();
+        clone.ints = ints.clone();
+        clone.longs = longs.clone();
+        clone.booleans = booleans.clone();
+        clone.objects = objects.clone();
+        clone.boxedSlots = boxedSlots.clone();
+        clone.presentSlots = presentSlots.clone();
+        clone.size = size;
         return clone;
     }
 
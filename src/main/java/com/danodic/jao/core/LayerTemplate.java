@@ -0,0 +1,90 @@
+package com.danodic.jao.core;
+
+import com.danodic.jao.action.IInitializer;
+import com.danodic.jao.event.EventTemplate;
+import com.danodic.jao.event.InitializerEvent;
+import com.danodic.jao.exceptions.CannotInstantiateJaoRenderer;
+import com.danodic.jao.model.DataTypeModel;
+import com.danodic.jao.renderer.IRenderer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The immutable part of a layer: its data type, the renderer prototype with the
+ * data type already loaded into it, the initializers and the compiled events.
+ * Layers are created from it by cloning the renderer and the initializers, so
+ * the data type is only loaded once no matter how many instances are created.
+ * The actions are only cloned when they start, see EventTemplate.
+ */
+public final class LayerTemplate {
+
+    private final DataTypeModel dataType;
+    private final IRenderer renderer;
+    private final List<IInitializer> initializers;
+    private final Map<String, EventTemplate> events;
+
+    /**
+     * @param dataType The data type of the layer, as found in the JSON file.
+     * @param renderer The renderer prototype with the data type already set.
+     * @param initializers The initializer prototypes of the layer.
+     * @param events The compiled events of the layer along with their names.
+     */
+    public LayerTemplate(DataTypeModel dataType, IRenderer renderer, List<IInitializer> initializers,
+            Map<String, EventTemplate> events) {
+        this.dataType = dataType;
+        this.renderer = renderer;
+        this.initializers = Collections.unmodifiableList(new ArrayList<>(initializers));
+        this.events = Collections.unmodifiableMap(new LinkedHashMap<>(events));
+    }
+
+    /**
+     * Creates a new layer for the given Jao instance. The renderer and the
+     * initializers are cloned from the prototypes and the initializers are
+     * executed against the new layer. The events share the timelines of the
+     * template.
+     *
+     * @param jao The Jao instance that will own the layer.
+     * @return A new instance of JaoLayer.
+     * @throws CannotInstantiateJaoRenderer In case the renderer cannot be
+     * cloned.
+     */
+    public JaoLayer newLayer(Jao jao) throws CannotInstantiateJaoRenderer {
+        IRenderer rendererClone;
+        try {
+            rendererClone = renderer.clone();
+        } catch (Exception ex) {
+            throw new CannotInstantiateJaoRenderer(ex);
+        }
+
+        JaoLayer layer = new JaoLayer(jao, rendererClone);
+        layer.setDataType(dataType);
+
+        InitializerEvent init = new InitializerEvent();
+        initializers.forEach(initializer -> init.add(initializer.clone()));
+        layer.addInitializers(init);
+
+        events.forEach((name, event) -> layer.addEvent(name, event.newEvent(layer)));
+
+        return layer;
+    }
+
+    public DataTypeModel getDataType() {
+        return dataType;
+    }
+
+    public IRenderer getRenderer() {
+        return renderer;
+    }
+
+    public List<IInitializer> getInitializers() {
+        return initializers;
+    }
+
+    public Map<String, EventTemplate> getEvents() {
+        return events;
+    }
+
+}
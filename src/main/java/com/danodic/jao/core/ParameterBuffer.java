@@ -0,0 +1,109 @@
+package com.danodic.jao.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A triple buffer of LayerParameters, used to hand the parameters of a layer
+ * from the thread that runs the actions to the thread that renders it without
+ * locks.
+ *
+ * The update thread owns the back buffer and the render thread owns the front
+ * buffer. The third buffer sits in the middle and is swapped atomically with
+ * the back buffer when a snapshot is published, and with the front buffer when
+ * the render thread picks up a new snapshot. Neither thread ever waits for the
+ * other, and the render thread always sees a complete snapshot.
+ *
+ * When the layer is updated at a fixed rate, each snapshot also carries the
+ * parameters of the previous step and the alpha, so that the render thread can
+ * interpolate them on its own.
+ *
+ * publish() must only be called from a single thread, and so must acquire().
+ */
+final class ParameterBuffer {
+
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH = 0x4;
+
+    /**
+     * The parameters published by a single update.
+     */
+    static final class Snapshot {
+
+        private final LayerParameters parameters = new LayerParameters();
+        private final LayerParameters previousParameters = new LayerParameters();
+        private boolean interpolated;
+        private float alpha;
+
+        LayerParameters getParameters() {
+            return parameters;
+        }
+
+        /**
+         * Returns the parameters of the step before the last one. Only valid
+         * in case the snapshot is interpolated.
+         */
+        LayerParameters getPreviousParameters() {
+            return previousParameters;
+        }
+
+        boolean isInterpolated() {
+            return interpolated;
+        }
+
+        float getAlpha() {
+            return alpha;
+        }
+
+    }
+
+    private final Snapshot[] buffers;
+
+    // Index of the middle buffer, plus the FRESH bit in case it holds a
+    // snapshot that has not been acquired yet.
+    private final AtomicInteger middle;
+
+    private int back;
+    private int front;
+
+    ParameterBuffer() {
+        buffers = new Snapshot[]{new Snapshot(), new Snapshot(), new Snapshot()};
+        back = 0;
+        middle = new AtomicInteger(1);
+        front = 2;
+    }
+
+    /**
+     * Copies the parameters into the back buffer and makes it available to the
+     * render thread.
+     *
+     * @param parameters The live parameters of the layer.
+     * @param previousParameters The parameters of the previous step, or null
+     * in case the layer is not interpolated.
+     * @param alpha How far the update is between the previous and the last
+     * step.
+     */
+    void publish(LayerParameters parameters, LayerParameters previousParameters, float alpha) {
+        Snapshot snapshot = buffers[back];
+        parameters.copyTo(snapshot.parameters);
+        snapshot.interpolated = previousParameters != null;
+        if (snapshot.interpolated) {
+            previousParameters.copyTo(snapshot.previousParameters);
+        }
+        snapshot.alpha = alpha;
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Returns the latest snapshot published. In case nothing has been published
+     * since the last call, the same snapshot is returned again.
+     *
+     * @return The snapshot to be used by the renderer.
+     */
+    Snapshot acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return buffers[front];
+    }
+
+}
@@ -1,44 +1,100 @@
 package com.danodic.jao.event;
 
+import com.danodic.jao.core.IParameterBinder;
 import com.danodic.jao.core.JaoLayer;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * An event is a collection of EventAction items that hold an Action each. The
  * Event class manages the execution of the actions.
+ *
+ * The actions are compiled into a timeline, an array sorted by the time in
+ * which each action starts. A cursor points to the first action in the
+ * timeline that has not been started yet, so each frame only has to look at
+ * the actions that are about to start instead of polling the whole list.
+ *
+ * The actions being executed are kept in a fixed-size array that is compacted
+ * in place when actions are done, so no garbage is generated while the event
+ * is running.
+ *
+ * Events created from an EventTemplate share its timeline instead of holding
+ * one of their own. Each action is cloned from its prototype when it starts and
+ * dropped once it is done, so the event only holds the actions that are
+ * running. Listing the actions or adding new ones turns it into a regular
+ * event, cloning the actions that are not running.
  */
 public class Event {
 
-    private boolean sorted;
+    private static final EventAction[] EMPTY_TIMELINE = new EventAction[0];
+
     private boolean hasStarted;
 
     private List<EventAction> allEvents;
-    private List<EventAction> pool;
-    private List<EventAction> running;
+    private List<EventAction> pending;
+
+    private EventAction[] timeline;
+    private int cursor;
+
+    private EventAction[] running;
+    private int runningCount;
+    private final List<EventAction> runningView;
+
+    // Only set for events created from a template, see startAction()
+    private EventTemplate template;
+    private JaoLayer layer;
+    private int[] runningIndexes;
+    private Boolean loop;
 
     public Event() {
         // Initialize stuff
         allEvents = new ArrayList<>();
-        pool = new ArrayList<>();
-        running = new ArrayList<>();
-        sorted = false;
+        pending = new ArrayList<>();
+        timeline = EMPTY_TIMELINE;
+        cursor = 0;
+        running = EMPTY_TIMELINE;
+        runningCount = 0;
+        runningView = new RunningItems();
         hasStarted = false;
     }
 
+    /**
+     * Creates an event that runs the timeline of a template. The timeline is
+     * not copied, the event only keeps a cursor into it and the actions that
+     * are running.
+     *
+     * @param template The template holding the timeline.
+     * @param layer The layer that owns the event.
+     */
+    Event(EventTemplate template, JaoLayer layer) {
+        allEvents = new ArrayList<>(0);
+        pending = new ArrayList<>(0);
+        timeline = EMPTY_TIMELINE;
+        cursor = 0;
+        running = new EventAction[template.size()];
+        runningIndexes = new int[template.size()];
+        runningCount = 0;
+        runningView = new RunningItems();
+        hasStarted = false;
+        this.template = template;
+        this.layer = layer;
+    }
+
     /**
      * Will add a new action to the list of actions in this event.
      *
      * @param event An instance of EventAction.
      */
     public void addAction(EventAction event) {
-        sorted = false;
+        detachTemplate();
         allEvents.add(event);
-        pool.add(event);
+        pending.add(event);
     }
 
     /**
@@ -51,78 +107,173 @@ public class Event {
         events.stream().forEach(this::addAction);
     }
 
+    /**
+     * Will clone the action at the given position of the template timeline, so
+     * that it can be started. The action is bound to the parameters of the
+     * layer and told whether to loop, as it would have been in case it existed
+     * when the event was added to the layer.
+     *
+     * @param index Position of the action in the template timeline.
+     * @return A new instance of EventAction.
+     */
+    private EventAction startAction(int index) {
+        EventAction event = template.newAction(layer, index);
+        if (event.getAction() instanceof IParameterBinder) {
+            ((IParameterBinder) event.getAction()).bindParameters(layer.getParameters());
+        }
+        if (loop != null) {
+            event.setLoop(loop);
+        }
+        return event;
+    }
+
+    /**
+     * Turns an event created from a template into a regular event, with a
+     * timeline of its own. The actions that are running are kept and the
+     * others are cloned from the template.
+     */
+    private void detachTemplate() {
+        if (template == null) {
+            return;
+        }
+
+        EventAction[] compiled = new EventAction[template.size()];
+        for (int i = 0; i < runningCount; i++) {
+            compiled[runningIndexes[i]] = running[i];
+        }
+        for (int i = 0; i < compiled.length; i++) {
+            if (compiled[i] == null) {
+                compiled[i] = startAction(i);
+            }
+        }
+
+        timeline = compiled;
+        allEvents = new ArrayList<>(Arrays.asList(compiled));
+        template = null;
+        layer = null;
+        runningIndexes = null;
+    }
+
+    /**
+     * Will merge the actions added since the last compilation into the
+     * timeline. The actions that have already been started are kept in front
+     * of the cursor and only the ones still waiting to start are sorted again.
+     */
+    private void compileTimeline() {
+        EventAction[] compiled = new EventAction[timeline.length + pending.size()];
+
+        // Actions already started keep their place before the cursor
+        System.arraycopy(timeline, 0, compiled, 0, timeline.length);
+
+        // New actions go after the existing ones so that the stable sort keeps
+        // the order in which actions with the same start time were added
+        for (int i = 0; i < pending.size(); i++) {
+            compiled[timeline.length + i] = pending.get(i);
+        }
+        Arrays.sort(compiled, cursor, compiled.length);
+
+        timeline = compiled;
+        pending.clear();
+
+        // No more actions than the ones in the timeline can run at once, so
+        // the running array never has to grow while the event is executed
+        running = Arrays.copyOf(running, timeline.length);
+    }
+
     /**
      * Will return the list of EventAction instances currently being executed.
      *
      * @param elapsed How much time has elapsed since the beginning of the
      * execution.
-     * @return A list of EventAction instances.
+     * @return A read-only view of the EventAction instances being executed.
      */
     public List<EventAction> getRunningItems(long elapsed) {
 
         hasStarted = true;
 
-        // Clean the list of new running events
-        List<EventAction> newRunning = new ArrayList<>();
-
-        // Sort the events in case they aren't
-        if (!sorted) {
-            Collections.sort(pool);
-            sorted = true;
+        // Events created from a template start each action from the shared
+        // timeline, cloning it only when it is due
+        if (template != null) {
+            while (cursor < template.size() && template.getWhen(cursor) <= elapsed) {
+                runningIndexes[runningCount] = cursor;
+                running[runningCount++] = startAction(cursor);
+                cursor++;
+            }
+            return runningView;
         }
 
-        // Poll items from the pool
-        for (EventAction event : pool) {
-
-            // Check if it is time to run the event
-            if (event.getWhen() <= elapsed) {
-                newRunning.add(event);
-                continue;
-            }
+        // Compile the timeline in case new actions were added
+        if (!pending.isEmpty()) {
+            compileTimeline();
+        }
 
-            // Leave the loop because none of the further items should be used
-            break;
+        // Move the cursor over all actions that should be started by now, the
+        // timeline is sorted so we can stop at the first one in the future
+        while (cursor < timeline.length && timeline[cursor].getWhen() <= elapsed) {
+            running[runningCount++] = timeline[cursor];
+            cursor++;
         }
 
-        // Remove new running items from the polling list
-        pool.removeAll(newRunning);
+        // Return the running list
+        return runningView;
+    }
 
-        // Add the items to run to the running array
-        running.addAll(newRunning);
+    /**
+     * Returns how many actions are currently being executed. Along with
+     * getRunningItem(), it allows iterating over the running actions without
+     * creating an iterator.
+     *
+     * @return The amount of actions being executed.
+     */
+    public int getRunningCount() {
+        return runningCount;
+    }
 
-        // Return the running list iterator
-        return running;
+    /**
+     * Returns one of the actions currently being executed.
+     *
+     * @param index Index of the action, from 0 to getRunningCount() - 1.
+     * @return An instance of EventAction.
+     */
+    public EventAction getRunningItem(int index) {
+        return running[index];
     }
 
     /**
      * Removes all actions marked as done from the list of events that are
-     * currently running.
+     * currently running. The running array is compacted in place, keeping the
+     * actions that are still running in the order they were started.
      */
     public void cleanDone() {
 
-        List<EventAction> toRemove = new ArrayList<>();
+        int kept = 0;
 
-        // Get items done
-        for (EventAction event : running) {
+        for (int i = 0; i < runningCount; i++) {
+            EventAction event = running[i];
 
-            // Check if it is time to run the event
-            if (event.isDone()) {
-                toRemove.add(event);
+            // Keep only the items that are not done yet
+            if (!event.isDone()) {
+                if (runningIndexes != null) {
+                    runningIndexes[kept] = runningIndexes[i];
+                }
+                running[kept++] = event;
             }
         }
 
-        // Remove items done
-        running.removeAll(toRemove);
+        // Clear the trailing slots so that done actions can be collected
+        Arrays.fill(running, kept, runningCount, null);
+        runningCount = kept;
 
     }
 
     /**
      * Will check if there are items running and if there are still items left
-     * in the pool to be executed. Also, it will only return true in case it has
-     * been executed at least once.
+     * in the timeline to be executed. Also, it will only return true in case it
+     * has been executed at least once.
      */
     public boolean isDone() {
-        return (running.isEmpty() && pool.isEmpty() && hasStarted);
+        int length = template == null ? timeline.length : template.size();
+        return (runningCount == 0 && pending.isEmpty() && cursor == length && hasStarted);
     }
 
     /**
@@ -131,27 +282,40 @@ public class Event {
      * @param loop Wheter actions should loop or not.
      */
     public void setLoop(boolean loop) {
-        for (EventAction event : allEvents) {
-            event.setLoop(loop);
-        }
+        this.loop = loop;
+        forEachAction(event -> event.setLoop(loop));
     }
 
     /**
-     * Will feed the execution pool with all actions to be executed and then
+     * Will rewind the timeline so that all actions are executed again and then
      * will clean up the list of events being executed. Then, it will invoke
      * reset() on each action in this event.
      */
     public void reset() {
 
-        // Mark to be sorted again
-        sorted = false;
+        // Actions of a template are cloned again when they start, so the ones
+        // running can just be dropped
+        if (template != null) {
+            cursor = 0;
+            Arrays.fill(running, 0, runningCount, null);
+            runningCount = 0;
+            hasStarted = false;
+            return;
+        }
 
-        // Clean up the lists
-        pool = new ArrayList<>();
-        running = new ArrayList<>();
+        // Rewind the timeline, the actions are resorted in case some of them
+        // had their start time changed. Sorting a timeline that is already in
+        // order is a single pass over it.
+        cursor = 0;
+        if (pending.isEmpty()) {
+            Arrays.sort(timeline);
+        } else {
+            compileTimeline();
+        }
 
-        // Copy events to the poll
-        pool.addAll(allEvents);
+        // Clean up the running list
+        Arrays.fill(running, 0, runningCount, null);
+        runningCount = 0;
 
         // Reset the events
         for (EventAction event : allEvents) {
@@ -168,9 +332,27 @@ public class Event {
      * @return A list of EventAction instances.
      */
     public List<EventAction> getAllActionEvents() {
+        detachTemplate();
         return allEvents;
     }
 
+    /**
+     * Will call the consumer for each action that exists in this event. In case
+     * the event was created from a template, only the running actions exist, as
+     * the others are created when they start.
+     *
+     * @param consumer What to do with each EventAction.
+     */
+    public void forEachAction(Consumer<EventAction> consumer) {
+        if (template == null) {
+            allEvents.forEach(consumer);
+        } else {
+            for (int i = 0; i < runningCount; i++) {
+                consumer.accept(running[i]);
+            }
+        }
+    }
+
     /**
      * Generates a deep copy of an instance of the Event class.
      *
@@ -178,23 +360,66 @@ public class Event {
      * @return A deep copy of the caller instance.
      */
     public Event clone(JaoLayer layer) {
+        if (template != null) {
+            Event clone = new Event(template, layer);
+            for (int i = 0; i < runningCount; i++) {
+                clone.running[i] = running[i].clone(layer);
+                clone.runningIndexes[i] = runningIndexes[i];
+            }
+            clone.runningCount = runningCount;
+            clone.cursor = cursor;
+            clone.hasStarted = hasStarted;
+            clone.loop = loop;
+            return clone;
+        }
+
         Event clone = new Event();
-        
+
         Map<EventAction, EventAction> eventMap = new HashMap<>();
-        
+
         clone.allEvents = allEvents.stream().map(eventAction -> {
             EventAction action = eventAction.clone(layer);
             eventMap.put(eventAction, action);
             return action;
         }).collect(Collectors.toList());
-        
-        pool.forEach(event -> clone.pool.add(eventMap.get(event)));
-        running.forEach(event -> clone.pool.add(eventMap.get(event)));
 
-        clone.sorted = sorted;
+        clone.timeline = new EventAction[timeline.length];
+        for (int i = 0; i < timeline.length; i++) {
+            clone.timeline[i] = eventMap.get(timeline[i]);
+        }
+        pending.forEach(event -> clone.pending.add(eventMap.get(event)));
+
+        clone.running = new EventAction[running.length];
+        for (int i = 0; i < runningCount; i++) {
+            clone.running[i] = eventMap.get(running[i]);
+        }
+        clone.runningCount = runningCount;
+
+        clone.cursor = cursor;
         clone.hasStarted = hasStarted;
-        
+
         return clone;
     }
 
+    /**
+     * Read-only list view over the running array, so that callers can keep
+     * using the List interface without the event copying anything.
+     */
+    private class RunningItems extends AbstractList<EventAction> {
+
+        @Override
+        public EventAction get(int index) {
+            if (index < 0 || index >= runningCount) {
+                throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, runningCount));
+            }
+            return running[index];
+        }
+
+        @Override
+        public int size() {
+            return runningCount;
+        }
+
+    }
+
 }
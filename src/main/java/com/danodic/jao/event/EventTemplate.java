@@ -0,0 +1,90 @@
+package com.danodic.jao.event;
+
+import com.danodic.jao.action.IAction;
+import com.danodic.jao.core.JaoLayer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The immutable, compiled version of an event. It holds the action prototypes
+ * already sorted by the time in which they start, so that the events created
+ * from it can skip the sorting step and start from a ready-made timeline.
+ *
+ * The events created by newEvent() do not copy the timeline, they keep a cursor
+ * into it and clone each prototype only when its action starts. The prototypes
+ * are never executed, which is what allows a single template to be shared by
+ * any number of Jao instances and threads.
+ */
+public final class EventTemplate {
+
+    private final IAction[] actions;
+    private final long[] when;
+
+    /**
+     * @param actions The action prototypes, in the order they were declared.
+     * @param when The start time of each action, in milliseconds.
+     */
+    public EventTemplate(List<IAction> actions, List<Long> when) {
+        if (actions.size() != when.size()) {
+            throw new IllegalArgumentException("Every action must have a start time.");
+        }
+
+        // Sort the indexes by start time. The sort is stable, so actions that
+        // start at the same time keep the order in which they were declared.
+        Integer[] order = new Integer[actions.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(when::get));
+
+        this.actions = new IAction[order.length];
+        this.when = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            this.actions[i] = actions.get(order[i]);
+            this.when[i] = when.get(order[i]);
+        }
+    }
+
+    /**
+     * Creates a new event for the given layer, sharing the timeline of this
+     * template. No action is cloned until it starts.
+     *
+     * @param layer The layer that will own the event.
+     * @return A new instance of Event.
+     */
+    public Event newEvent(JaoLayer layer) {
+        return new Event(this, layer);
+    }
+
+    /**
+     * Clones one of the action prototypes for the given layer.
+     *
+     * @param layer The layer that will own the action.
+     * @param index Position of the action in the timeline.
+     * @return A new instance of EventAction.
+     */
+    EventAction newAction(JaoLayer layer, int index) {
+        return new EventAction(layer, actions[index].clone(), when[index]);
+    }
+
+    /**
+     * Returns how many actions this event holds.
+     *
+     * @return The amount of actions in the timeline.
+     */
+    public int size() {
+        return actions.length;
+    }
+
+    /**
+     * Returns the start time of one of the actions in the timeline.
+     *
+     * @param index Position of the action in the timeline.
+     * @return The start time in milliseconds.
+     */
+    public long getWhen(int index) {
+        return when[index];
+    }
+
+}
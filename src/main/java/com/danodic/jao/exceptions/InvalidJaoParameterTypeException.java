@@ -0,0 +1,28 @@
+package com.danodic.jao.exceptions;
+
+public class InvalidJaoParameterTypeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String parameterName;
+    private final String slotType;
+    private final String requestedType;
+
+    public InvalidJaoParameterTypeException(String parameterName, String slotType, String requestedType) {
+        this.parameterName = parameterName;
+        this.slotType = slotType;
+        this.requestedType = requestedType;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("The parameter %s is bound as %s and cannot be bound as %s.", parameterName, slotType,
+                requestedType);
+    }
+
+    @Override
+    public String getMessage() {
+        return toString();
+    }
+
+}
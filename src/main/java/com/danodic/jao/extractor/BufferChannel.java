@@ -0,0 +1,89 @@
+package com.danodic.jao.extractor;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A read-only SeekableByteChannel over a ByteBuffer, used for the files that
+ * are already in memory or mapped into it.
+ */
+final class BufferChannel implements SeekableByteChannel {
+
+    private final ByteBuffer buffer;
+    private boolean open;
+
+    // Kept apart from the buffer, as the position may be past its end
+    private long position;
+
+    BufferChannel(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+        this.open = true;
+        this.position = 0L;
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer target) throws ClosedChannelException {
+        checkOpen();
+        if (position >= buffer.limit()) {
+            return -1;
+        }
+        int count = (int) Math.min(target.remaining(), buffer.limit() - position);
+        ByteBuffer source = buffer.duplicate();
+        source.position((int) position);
+        source.limit((int) position + count);
+        target.put(source);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int write(ByteBuffer source) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws ClosedChannelException {
+        checkOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(long position) throws ClosedChannelException {
+        checkOpen();
+        if (position < 0L) {
+            throw new IllegalArgumentException("The position cannot be negative.");
+        }
+        this.position = position;
+        return this;
+    }
+
+    @Override
+    public synchronized long size() throws ClosedChannelException {
+        checkOpen();
+        return buffer.limit();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+    }
+
+    private void checkOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.danodic.jao.extractor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
+
+/**
+ * Wraps any extractor, keeping the files it returns in a ContentCache bounded
+ * by the amount of bytes it holds. Files dropped from the cache are loaded
+ * again from the wrapped extractor the next time they are requested.
+ *
+ * Wrapping a lazy extractor keeps the memory used by a jao file within the
+ * budget of the cache. Many extractors can share the same cache, so that the
+ * files of all of them together stay within a single budget, such as in a
+ * server holding lots of animations. The cache tells how many hits, misses and
+ * evictions it had.
+ *
+ * Streams and channels are served from the cache when the file is there, but
+ * reading a file through them does not add it to the cache, nor is it counted
+ * as a hit or a miss.
+ */
+public class CachingExtractor implements IExtractor, Closeable {
+
+    private final IExtractor extractor;
+    private final ContentCache cache;
+
+    /**
+     * Identifies a file in a cache that may be shared with other extractors.
+     */
+    private static final class Key {
+
+        private final CachingExtractor owner;
+        private final String name;
+
+        private Key(CachingExtractor owner, String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return owner == key.owner && name.equals(key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(owner) + name.hashCode();
+        }
+
+    }
+
+    /**
+     * @param extractor The extractor the files are loaded from.
+     * @param maxSize Maximum amount of bytes held by the cache.
+     * @param policy Which files are dropped first when the cache is full.
+     */
+    public CachingExtractor(IExtractor extractor, long maxSize, EvictionPolicy policy) {
+        this(extractor, new ContentCache(maxSize, policy));
+    }
+
+    /**
+     * @param extractor The extractor the files are loaded from.
+     * @param cache The cache where the files are kept, which may be shared
+     * with other extractors.
+     */
+    public CachingExtractor(IExtractor extractor, ContentCache cache) {
+        this.extractor = extractor;
+        this.cache = cache;
+    }
+
+    /**
+     * Will return the bytes from the cache, loading them from the wrapped
+     * extractor in case they are not there.
+     *
+     * @throws ContentFileDoesNotExistException In case the file was not found.
+     */
+    @Override
+    public byte[] getData(String name) throws ContentFileDoesNotExistException {
+        Key key = new Key(this, name);
+        byte[] bytes = cache.get(key);
+        if (bytes == null) {
+            bytes = extractor.getData(name);
+            cache.put(key, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Will return a stream over the cached bytes, or the stream from the
+     * wrapped extractor in case the file is not in the cache.
+     *
+     * @throws ContentFileDoesNotExistException In case the file was not found.
+     */
+    @Override
+    public InputStream getStream(String name) throws ContentFileDoesNotExistException {
+        byte[] bytes = cache.find(new Key(this, name));
+        if (bytes == null) {
+            return extractor.getStream(name);
+        }
+        return new BufferInputStream(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+
+    /**
+     * Will return a channel over the cached bytes, or the channel from the
+     * wrapped extractor in case the file is not in the cache.
+     *
+     * @throws ContentFileDoesNotExistException In case the file was not found.
+     */
+    @Override
+    public SeekableByteChannel getChannel(String name) throws ContentFileDoesNotExistException {
+        byte[] bytes = cache.find(new Key(this, name));
+        if (bytes == null) {
+            return extractor.getChannel(name);
+        }
+        return new BufferChannel(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+
+    @Override
+    public String getJson() {
+        return extractor.getJson();
+    }
+
+    @Override
+    public byte[] getBinary() {
+        return extractor.getBinary();
+    }
+
+    @Override
+    public String getFilename() {
+        return extractor.getFilename();
+    }
+
+    public IExtractor getExtractor() {
+        return extractor;
+    }
+
+    public ContentCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Drops the files of this extractor from the cache and closes the wrapped
+     * extractor, in case it can be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        cache.removeIf(key -> key instanceof Key && ((Key) key).owner == this);
+        if (extractor instanceof Closeable) {
+            ((Closeable) extractor).close();
+        }
+    }
+
+}
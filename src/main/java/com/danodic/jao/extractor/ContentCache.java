@@ -0,0 +1,202 @@
+package com.danodic.jao.extractor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A cache of file contents bounded by the amount of bytes it holds. When it is
+ * full, files are dropped as told by the EvictionPolicy, the least recently
+ * used ones by default. Files bigger than the cache itself are never kept.
+ *
+ * It is used by the lazy extractors and by the CachingExtractor. A single
+ * cache can be shared by many CachingExtractors, so that all of them together
+ * stay within the same budget.
+ *
+ * All methods are synchronized, so the cache can be shared by the threads
+ * reading from the same extractor.
+ */
+public final class ContentCache {
+
+    private final long maxSize;
+    private final EvictionPolicy policy;
+    private final LinkedHashMap<Object, Entry> entries;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static final class Entry {
+
+        private final byte[] data;
+        private long uses;
+
+        private Entry(byte[] data) {
+            this.data = data;
+            this.uses = 1L;
+        }
+
+    }
+
+    /**
+     * @param maxSize Maximum amount of bytes held by the cache.
+     */
+    public ContentCache(long maxSize) {
+        this(maxSize, EvictionPolicy.LRU);
+    }
+
+    /**
+     * @param maxSize Maximum amount of bytes held by the cache.
+     * @param policy Which files are dropped first when the cache is full.
+     */
+    public ContentCache(long maxSize, EvictionPolicy policy) {
+        if (maxSize < 0L) {
+            throw new IllegalArgumentException("The cache size cannot be negative.");
+        }
+        this.maxSize = maxSize;
+        this.policy = policy;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        size = 0L;
+        hits = 0L;
+        misses = 0L;
+        evictions = 0L;
+    }
+
+    synchronized byte[] get(Object key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        entry.uses++;
+        return entry.data;
+    }
+
+    /**
+     * Same as get(), but does not count a hit or a miss. Used by the reads
+     * that do not add the file to the cache when it is missing.
+     */
+    synchronized byte[] find(Object key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.uses++;
+        return entry.data;
+    }
+
+    synchronized void put(Object key, byte[] data) {
+        if (data.length > maxSize) {
+            // Do not keep the previous contents either, as they are outdated
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                size -= previous.data.length;
+            }
+            return;
+        }
+
+        Entry previous = entries.put(key, new Entry(data));
+        size += data.length - (previous == null ? 0 : previous.data.length);
+
+        while (size > maxSize) {
+            evict(key);
+        }
+    }
+
+    /**
+     * Drops one file, never the one just added.
+     */
+    private void evict(Object added) {
+        Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+        Map.Entry<Object, Entry> victim = null;
+        while (iterator.hasNext()) {
+            Map.Entry<Object, Entry> entry = iterator.next();
+            if (entry.getKey().equals(added)) {
+                continue;
+            }
+            // The map goes from the least to the most recently used, so the
+            // first entry found wins the ties
+            if (victim == null || (policy == EvictionPolicy.LFU && entry.getValue().uses < victim.getValue().uses)) {
+                victim = entry;
+            }
+            if (policy == EvictionPolicy.LRU) {
+                break;
+            }
+        }
+
+        entries.remove(victim.getKey());
+        size -= victim.getValue().data.length;
+        evictions++;
+    }
+
+    /**
+     * Drops the files whose keys match the predicate, without counting them as
+     * evictions.
+     */
+    synchronized void removeIf(Predicate<Object> predicate) {
+        Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Object, Entry> entry = iterator.next();
+            if (predicate.test(entry.getKey())) {
+                size -= entry.getValue().data.length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of bytes held by the cache.
+     *
+     * @return The size of the files in the cache, in bytes.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns how many times a file was found in the cache.
+     *
+     * @return The amount of hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns how many times a file was not found in the cache and had to be
+     * loaded.
+     *
+     * @return The amount of misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns how many files were dropped to keep the cache within its size.
+     *
+     * @return The amount of evictions.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Drops all files from the cache. The counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0L;
+    }
+
+}
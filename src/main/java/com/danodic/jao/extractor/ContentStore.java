@@ -0,0 +1,176 @@
+package com.danodic.jao.extractor;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A store of file contents addressed by their SHA-256 hash, shared by the
+ * extractors configured to use it (see ExtractorConfiguration). When the same
+ * bytes are loaded more than once, be it by different jao files or under
+ * different names in the same file, all of them get the same array and only
+ * one copy is kept in memory.
+ *
+ * The store only holds weak references to the contents, so it never keeps
+ * alive a file that no extractor uses anymore.
+ *
+ * The arrays returned by the store are shared, so they must never be changed.
+ * A single store can be used by any number of threads.
+ */
+public final class ContentStore {
+
+    private static final ContentStore GLOBAL = new ContentStore();
+
+    private final Map<Key, Entry> entries;
+    private final ReferenceQueue<byte[]> queue;
+    private long hits;
+    private long savedBytes;
+
+    /**
+     * Identifies the contents by their hash and size.
+     */
+    private static final class Key {
+
+        private final byte[] hash;
+        private final int size;
+        private final int hashCode;
+
+        private Key(byte[] hash, int size) {
+            this.hash = hash;
+            this.size = size;
+            this.hashCode = 31 * Arrays.hashCode(hash) + size;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return size == key.size && Arrays.equals(hash, key.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+    /**
+     * A weak reference to the contents that remembers its key, so it can be
+     * removed from the store once the contents are collected.
+     */
+    private static final class Entry extends WeakReference<byte[]> {
+
+        private final Key key;
+
+        private Entry(byte[] data, Key key, ReferenceQueue<byte[]> queue) {
+            super(data, queue);
+            this.key = key;
+        }
+
+    }
+
+    public ContentStore() {
+        entries = new HashMap<>();
+        queue = new ReferenceQueue<>();
+        hits = 0L;
+        savedBytes = 0L;
+    }
+
+    /**
+     * Returns the store shared by the whole application.
+     *
+     * @return The global instance of ContentStore.
+     */
+    public static ContentStore getGlobal() {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns the array in the store with the same contents as the one given,
+     * or adds the one given to the store in case there is none.
+     *
+     * @param data The contents of a file.
+     * @return An array with the same contents, shared with everyone that
+     * interned them.
+     */
+    public byte[] intern(byte[] data) {
+        Key key = new Key(hash(data), data.length);
+        synchronized (entries) {
+            expunge();
+
+            Entry entry = entries.get(key);
+            byte[] shared = entry == null ? null : entry.get();
+            if (shared != null) {
+                hits++;
+                savedBytes += data.length;
+                return shared;
+            }
+
+            entries.put(key, new Entry(data, key, queue));
+            return data;
+        }
+    }
+
+    /**
+     * Returns how many different contents are held by the store.
+     *
+     * @return The amount of contents still in use.
+     */
+    public int size() {
+        synchronized (entries) {
+            expunge();
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns how many times contents already in the store were interned
+     * again.
+     *
+     * @return The amount of copies avoided.
+     */
+    public long getHits() {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    /**
+     * Returns the sum of the sizes of the copies avoided by the store.
+     *
+     * @return The amount of bytes not duplicated, in bytes.
+     */
+    public long getSavedBytes() {
+        synchronized (entries) {
+            return savedBytes;
+        }
+    }
+
+    /**
+     * Removes the entries whose contents have been collected. Must be called
+     * holding the lock of the entries.
+     */
+    private void expunge() {
+        Entry entry;
+        while ((entry = (Entry) queue.poll()) != null) {
+            entries.remove(entry.key, entry);
+        }
+    }
+
+    private static byte[] hash(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
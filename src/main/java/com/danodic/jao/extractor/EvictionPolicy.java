@@ -0,0 +1,19 @@
+package com.danodic.jao.extractor;
+
+/**
+ * Tells which files a ContentCache drops first when it is full.
+ */
+public enum EvictionPolicy {
+
+    /**
+     * Drops the files used least recently.
+     */
+    LRU,
+
+    /**
+     * Drops the files used the least times, and among them the ones used least
+     * recently.
+     */
+    LFU
+
+}
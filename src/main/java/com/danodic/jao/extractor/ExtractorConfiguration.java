@@ -0,0 +1,149 @@
+package com.danodic.jao.extractor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Tells the extractors how to load the contents of a jao file. It is passed to
+ * ExtractorFactory.getExtractor() or to the constructors of the extractors.
+ *
+ * By default the extractors are eager: every file is loaded into memory when
+ * the extractor is created. In lazy mode only the list of files is read at
+ * that point, and each file is loaded the first time getData() asks for it.
+ * The loaded files can then be kept in a cache bounded by the amount of bytes
+ * it holds, so that files used often are not loaded again. Without a cache,
+ * each call to getData() loads the file again.
+ *
+ * Lazy zip extractors keep the jao file open until they are closed, unless
+ * keepOpen is disabled, in which case the file is opened again on each load.
+ *
+ * Eager extractors can load the files in parallel when an executor is given.
+ * Folders read each file in its own task, while zip files are split in as
+ * many groups as the parallelism, each one read through its own handle to the
+ * file.
+ *
+ * When a ContentStore is given, the contents loaded by the extractor are
+ * interned in it, so files with the same bytes share a single array with the
+ * other extractors using that store.
+ *
+ * When memoryMapped is enabled, zip files are mapped into memory by the
+ * MappedZipExtractor instead, and the other options do not apply to them.
+ */
+public class ExtractorConfiguration {
+
+    private boolean lazy;
+    private long cacheSize;
+    private boolean keepOpen;
+    private boolean memoryMapped;
+    private Executor executor;
+    private int parallelism;
+    private ContentStore contentStore;
+
+    public ExtractorConfiguration() {
+        lazy = false;
+        cacheSize = 0L;
+        keepOpen = true;
+        memoryMapped = false;
+        executor = null;
+        parallelism = Runtime.getRuntime().availableProcessors();
+        contentStore = null;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public ExtractorConfiguration setLazy(boolean lazy) {
+        this.lazy = lazy;
+        return this;
+    }
+
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Sets the maximum amount of bytes the cache of a lazy extractor may hold.
+     * Zero disables the cache.
+     *
+     * @param cacheSize Size of the cache in bytes.
+     * @return This configuration.
+     */
+    public ExtractorConfiguration setCacheSize(long cacheSize) {
+        if (cacheSize < 0L) {
+            throw new IllegalArgumentException("The cache size cannot be negative.");
+        }
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
+    public boolean isKeepOpen() {
+        return keepOpen;
+    }
+
+    public ExtractorConfiguration setKeepOpen(boolean keepOpen) {
+        this.keepOpen = keepOpen;
+        return this;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    public ExtractorConfiguration setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+        return this;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor used to load the files of eager extractors. Without an
+     * executor, the files are loaded by the thread creating the extractor.
+     *
+     * @param executor The executor, or null.
+     * @return This configuration.
+     */
+    public ExtractorConfiguration setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets in how many groups the entries of a zip file are split when loaded
+     * by the executor. Defaults to the number of processors.
+     *
+     * @param parallelism The number of groups.
+     * @return This configuration.
+     */
+    public ExtractorConfiguration setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1.");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public ContentStore getContentStore() {
+        return contentStore;
+    }
+
+    /**
+     * Sets the store where the contents of the files are interned, such as
+     * ContentStore.getGlobal(). Without a store, each extractor keeps its own
+     * copies.
+     *
+     * @param contentStore The store, or null.
+     * @return This configuration.
+     */
+    public ExtractorConfiguration setContentStore(ContentStore contentStore) {
+        this.contentStore = contentStore;
+        return this;
+    }
+
+}
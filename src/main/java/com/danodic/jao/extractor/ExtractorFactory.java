@@ -34,12 +34,31 @@ public class ExtractorFactory {
 	 */
 	public static IExtractor getExtractor(String filename)
 			throws CannotLoadJaoFileException, CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton {
+		return getExtractor(filename, new ExtractorConfiguration());
+	}
+
+	/**
+	 * Provides an instance of IExtractor according to known file types, loading
+	 * the file as told by the configuration.
+	 * 
+	 * @param filename      Name of the file to be loaded.
+	 * @param configuration Tells how the contents of the file are loaded.
+	 * @return An instance of IExtractor compatible with the file type provided.
+	 * @throws CannotLoadJaoFileContentException In case any of the content files
+	 *                                           could not be loaded.
+	 * @throws CannotLoadJaoFileException        In case the jao file could not be
+	 *                                           loaded.
+	 * @throws UnknownJaoFileFormatExcepton      In case of a unknown file format is
+	 *                                           provided.
+	 */
+	public static IExtractor getExtractor(String filename, ExtractorConfiguration configuration)
+			throws CannotLoadJaoFileException, CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton {
 
 		Path path = Paths.get(filename);
 		
 		// Check if the file provided is a folder
 		if (path.toFile().isDirectory()) {
-			return new FolderExtractor(filename);
+			return new FolderExtractor(filename, configuration);
 		}
 
 		// Not a folder, check if we have a file extension
@@ -47,7 +66,9 @@ public class ExtractorFactory {
 
 		// Check if this is a known file format
 		if (lastName.toLowerCase().endsWith(".zip") || lastName.toLowerCase().endsWith(".jao")) {
-			return new ZipExtractor(filename);
+			if (configuration.isMemoryMapped())
+				return new MappedZipExtractor(filename);
+			return new ZipExtractor(filename, configuration);
 		}
 
 		// If not a known extension, throw an exception
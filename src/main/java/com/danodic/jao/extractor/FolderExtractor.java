@@ -1,27 +1,55 @@
 package com.danodic.jao.extractor;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import com.danodic.jao.exceptions.CannotLoadJaoFileContentException;
 import com.danodic.jao.exceptions.CannotLoadJaoFileException;
 import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
+import com.danodic.jao.parser.BinaryFormat;
 
 /**
  * This is the implementation of the extractor for folders. While the .jao file
  * is a cool way of carrying the data, loading data from folders are helpful
  * mainly during development.
+ *
+ * In lazy mode (see ExtractorConfiguration) only the paths of the files are
+ * indexed when the extractor is created, along with jao.json and jao.bin. The
+ * contents of every other file are read the first time they are requested.
+ *
+ * Eager extractors with an executor read the files in parallel, each one in its
+ * own task.
  */
 public class FolderExtractor implements IExtractor {
 
     private String json;
+    private byte[] binary;
     private Map<String, byte[]> data;
+    private Map<String, Path> files;
     private String rootFolder;
+    private boolean lazy;
+    private ContentCache cache;
+    private Executor executor;
+    private ContentStore store;
 
     /**
      * @param filePath The name of the file to be loaded.
@@ -31,81 +59,216 @@ public class FolderExtractor implements IExtractor {
      * the jao file could not be loaded by some reason.
      */
     public FolderExtractor(String folder) throws CannotLoadJaoFileException, CannotLoadJaoFileContentException {
+        this(folder, new ExtractorConfiguration());
+    }
+
+    /**
+     * @param folder The name of the folder to be loaded.
+     * @param configuration Tells if the files are loaded now or on demand.
+     * @throws CannotLoadJaoFileException In case the file could not be loaded
+     * by some reason.
+     * @throws CannotLoadJaoFileContentException In case one of the files inside
+     * the jao file could not be loaded by some reason.
+     */
+    public FolderExtractor(String folder, ExtractorConfiguration configuration)
+            throws CannotLoadJaoFileException, CannotLoadJaoFileContentException {
 
         Path folderPath;
 
         // Initialize data
         folderPath = Paths.get(folder);
         data = new HashMap<>();
+        files = new HashMap<>();
         json = null;
+        binary = null;
         rootFolder = folder;
+        lazy = configuration.isLazy();
+        cache = lazy && configuration.getCacheSize() > 0 ? new ContentCache(configuration.getCacheSize()) : null;
+        executor = lazy ? null : configuration.getExecutor();
+        store = configuration.getContentStore();
 
         // Check if the folder exists
-        if (!folderPath.toFile().exists()) {
+        if (!Files.exists(folderPath)) {
             throw new CannotLoadJaoFileException(folder, new RuntimeException("Folder provided does not exists."));
         }
 
         // Check if this is not a directory
-        if (!folderPath.toFile().isDirectory()) {
+        if (!Files.isDirectory(folderPath)) {
             throw new CannotLoadJaoFileException(folder, new RuntimeException("Path provided is not a folder."));
         }
 
-        // Parse the folder and load the bytes in memory
-        parseFolder(folder);
+        // Index the folder, loading the bytes in memory if not lazy
+        parseFolder(folderPath);
+        if (executor != null) {
+            loadParallel();
+        }
 
-        // Throw an exception in case we have no json
-        if (json == null) {
+        // Throw an exception in case we have no json nor binary timeline
+        if (json == null && binary == null) {
             throw new CannotLoadJaoFileException(folder,
                     new RuntimeException("No file named jao.json has been found."));
         }
     }
 
     /**
-     * Will iterate over a folder and call itself in case another folder is
-     * found within the structure.
+     * Will walk the folder and its subfolders, indexing every file by its path
+     * relative to the root folder, always separated by slashes. Symbolic links
+     * are followed, both to files and to folders.
      *
-     * @param folder Name of the folder.
-     * @throws CannotLoadJaoFileContentException In case it can`t read the file.
+     * @param root The root folder.
+     * @throws CannotLoadJaoFileContentException In case it can`t read a file.
      */
-    private void parseFolder(String folder) throws CannotLoadJaoFileContentException {
+    private void parseFolder(Path root) throws CannotLoadJaoFileContentException {
+        Set<FileVisitOption> options = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
+        try {
+            Files.walkFileTree(root, options, Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    if (!attributes.isRegularFile()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    String fileName = file.getFileName().toString();
 
-        // List files from the folder and iterate over them
-        for (File entry : new File(folder).listFiles()) {
-            if (entry.isDirectory()) {
-                parseFolder(entry.getPath());
-            } else {
-                try {
                     // Check if this is the json file
-                    if (entry.getName().equals("jao.json")) {
-                        json = new String(Files.readAllBytes(Paths.get(entry.getPath())));
-                        continue;
+                    if (fileName.equals("jao.json")) {
+                        json = new String(Files.readAllBytes(file));
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    // The binary timeline is kept apart from the data too
+                    if (fileName.equals(BinaryFormat.FILENAME)) {
+                        binary = intern(Files.readAllBytes(file));
+                        return FileVisitResult.CONTINUE;
                     }
 
                     // Add file to the collection
-                    String path = entry.toString().substring(rootFolder.length(), entry.toString().length());
-                    path = path.replaceAll("[\\\\]", "/");
-                    if (path.startsWith("/") || path.startsWith("\\")) {
-                        path = path.substring(1, path.length());
+                    String path = getName(root.relativize(file));
+                    files.put(path, file);
+                    if (!lazy && executor == null) {
+                        data.put(path, intern(Files.readAllBytes(file)));
                     }
-                    data.put(path, Files.readAllBytes(Paths.get(entry.getPath())));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new CannotLoadJaoFileContentException(rootFolder, e);
+        }
+    }
 
+    /**
+     * Reads all the files indexed in the executor, each one in its own task.
+     *
+     * @throws CannotLoadJaoFileContentException In case it can`t read a file.
+     */
+    private void loadParallel() throws CannotLoadJaoFileContentException {
+        List<String> names = new ArrayList<>(files.keySet());
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+        for (String name : names) {
+            Path file = files.get(name);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return intern(Files.readAllBytes(file));
                 } catch (IOException e) {
-                    throw new CannotLoadJaoFileContentException(entry.getPath(), e);
+                    throw new CompletionException(e);
                 }
+            }, executor));
+        }
+
+        for (int i = 0; i < names.size(); i++) {
+            try {
+                data.put(names.get(i), futures.get(i).join());
+            } catch (CompletionException e) {
+                throw new CannotLoadJaoFileContentException(files.get(names.get(i)).toString(),
+                        e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            }
+        }
+    }
+
+    /**
+     * Returns the shared copy of the bytes in case there is a content store.
+     */
+    private byte[] intern(byte[] bytes) {
+        return store == null ? bytes : store.intern(bytes);
+    }
+
+    private static String getName(Path relative) {
+        StringBuilder name = new StringBuilder();
+        for (Path element : relative) {
+            if (name.length() > 0) {
+                name.append('/');
             }
+            name.append(element.toString());
         }
+        return name.toString();
     }
 
     /**
-     * Will return the bytes from the given file.
+     * Will return the bytes from the given file. In lazy mode the file is read
+     * now, unless it is still in the cache.
      *
      * @throws ContentFileDoesNotExistException In case the file was not found.
+     * @throws UncheckedIOException In case the file could not be read.
      */
     public byte[] getData(String name) throws ContentFileDoesNotExistException {
-        if (!data.containsKey(name)) {
+        if (!lazy) {
+            if (!data.containsKey(name)) {
+                throw new ContentFileDoesNotExistException(name);
+            }
+            return data.get(name);
+        }
+
+        Path path = getPath(name);
+        byte[] bytes = cache == null ? null : cache.get(name);
+        if (bytes == null) {
+            try {
+                bytes = intern(Files.readAllBytes(path));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (cache != null) {
+                cache.put(name, bytes);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Will return a stream that reads the file from the disk.
+     *
+     * @throws ContentFileDoesNotExistException In case the file was not found.
+     * @throws UncheckedIOException In case the file could not be opened.
+     */
+    @Override
+    public InputStream getStream(String name) throws ContentFileDoesNotExistException {
+        try {
+            return Files.newInputStream(getPath(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Will return a channel that reads the file from the disk.
+     *
+     * @throws ContentFileDoesNotExistException In case the file was not found.
+     * @throws UncheckedIOException In case the file could not be opened.
+     */
+    @Override
+    public SeekableByteChannel getChannel(String name) throws ContentFileDoesNotExistException {
+        try {
+            return Files.newByteChannel(getPath(name), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path getPath(String name) throws ContentFileDoesNotExistException {
+        Path path = files.get(name);
+        if (path == null) {
             throw new ContentFileDoesNotExistException(name);
         }
-        return data.get(name);
+        return path;
     }
 
     /**
@@ -115,6 +278,14 @@ public class FolderExtractor implements IExtractor {
         return this.json;
     }
 
+    /**
+     * Will return the binary timeline from the folder, if there is one.
+     */
+    @Override
+    public byte[] getBinary() {
+        return this.binary;
+    }
+
     @Override
     public String getFilename() {
         return rootFolder;
@@ -1,5 +1,9 @@
 package com.danodic.jao.extractor;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
 import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
 
 /**
@@ -7,8 +11,10 @@ import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
  * file or a folder). It is used when parsing the folder/files and providing the
  * data stored into that structure in a standard way.
  * 
- * It must load the contents of the folder/file provided and store in a byte
- * array in memory. Then, its data will be accessed through the getData method.
+ * It must provide the contents of the files in the folder/file through the
+ * getData method. Extractors may load all of them in memory when they are
+ * created or read each one on demand, as the lazy extractors do (see
+ * ExtractorConfiguration).
  * 
  * @author danodic
  */
@@ -23,6 +29,49 @@ public interface IExtractor {
      */
     public byte[] getData(String filename) throws ContentFileDoesNotExistException;
 
+    /**
+     * Returns the contents of a file as a read-only buffer. Extractors that can
+     * provide the data without copying it into the heap, such as the
+     * MappedZipExtractor, return a direct buffer. By default the array from
+     * getData() is wrapped.
+     * 
+     * @param filename Name of the file to get the bytes from.
+     * @return A read-only buffer with the file contents.
+     * @throws ContentFileDoesNotExistException In case the file request does not
+     *                                          exists in the JAO file.
+     */
+    public default ByteBuffer getBuffer(String filename) throws ContentFileDoesNotExistException {
+        return ByteBuffer.wrap(getData(filename)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a stream with the contents of a file, so it can be decoded while
+     * it is read. Extractors that do not hold the file in memory read it on
+     * demand. By default the stream reads from getBuffer().
+     * 
+     * @param filename Name of the file to read.
+     * @return A stream with the file contents, to be closed by the caller.
+     * @throws ContentFileDoesNotExistException In case the file request does not
+     *                                          exists in the JAO file.
+     */
+    public default InputStream getStream(String filename) throws ContentFileDoesNotExistException {
+        return new BufferInputStream(getBuffer(filename));
+    }
+
+    /**
+     * Returns a read-only channel with the contents of a file, which allows
+     * reading any range of a big file without loading all of it. By default
+     * the channel reads from getBuffer().
+     * 
+     * @param filename Name of the file to read.
+     * @return A channel with the file contents, to be closed by the caller.
+     * @throws ContentFileDoesNotExistException In case the file request does not
+     *                                          exists in the JAO file.
+     */
+    public default SeekableByteChannel getChannel(String filename) throws ContentFileDoesNotExistException {
+        return new BufferChannel(getBuffer(filename));
+    }
+
     /**
      * Must return the string representation of the JSON file (jao.json).
      * 
@@ -30,6 +79,17 @@ public interface IExtractor {
      */
     public String getJson();
 
+    /**
+     * Returns the binary timeline (jao.bin) compiled from the json by the
+     * JaoCompiler, in case there is one. When it is present, the json may be
+     * absent.
+     * 
+     * @return Contents of jao.bin, or null.
+     */
+    public default byte[] getBinary() {
+        return null;
+    }
+
     /**
      * Return the name of the file loaded by this extractor.
      * 
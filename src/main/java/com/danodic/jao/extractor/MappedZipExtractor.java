@@ -0,0 +1,299 @@
+package com.danodic.jao.extractor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.danodic.jao.exceptions.CannotLoadJaoFileContentException;
+import com.danodic.jao.exceptions.CannotLoadJaoFileException;
+import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
+import com.danodic.jao.parser.BinaryFormat;
+
+/**
+ * An extractor for zip files that maps the whole file into memory instead of
+ * reading it. Entries stored without compression are returned by getBuffer()
+ * as read-only slices of the mapped file, so the data is never copied into the
+ * heap and the renderers can hand it straight to the graphics or audio APIs.
+ * Compressed entries are inflated into a new buffer on each call.
+ *
+ * The zip directory is read by the extractor itself, since java.util.zip does
+ * not tell where the data of each entry is. Zip64 archives and files of 2 GB or
+ * more are not supported.
+ *
+ * The mapping is released by the garbage collector once the extractor and all
+ * the buffers returned by it are unreachable. close() only closes the file.
+ */
+public class MappedZipExtractor implements IExtractor, Closeable {
+
+    private static final int END_OF_DIRECTORY = 0x06054b50;
+    private static final int DIRECTORY_ENTRY = 0x02014b50;
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int END_OF_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private final String filePath;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final Map<String, Entry> entries;
+    private String json;
+    private byte[] binary;
+
+    /**
+     * Position and size of the data of an entry in the mapped file.
+     */
+    private static final class Entry {
+
+        private final int method;
+        private final int headerOffset;
+        private final int compressedSize;
+        private final int size;
+
+        private Entry(int method, int headerOffset, int compressedSize, int size) {
+            this.method = method;
+            this.headerOffset = headerOffset;
+            this.compressedSize = compressedSize;
+            this.size = size;
+        }
+
+    }
+
+    /**
+     * @param filePath The name of the file to be loaded.
+     * @throws CannotLoadJaoFileException In case the file could not be mapped
+     * or is not a zip file supported by this extractor.
+     * @throws CannotLoadJaoFileContentException In case jao.json or jao.bin
+     * could not be read.
+     */
+    public MappedZipExtractor(String filePath) throws CannotLoadJaoFileException, CannotLoadJaoFileContentException {
+        this.filePath = filePath;
+        entries = new HashMap<>();
+
+        try {
+            channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new CannotLoadJaoFileException(filePath, e);
+        }
+
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new CannotLoadJaoFileException(filePath,
+                        new RuntimeException("Files of 2 GB or more cannot be mapped."));
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            readDirectory();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw new CannotLoadJaoFileException(filePath, e);
+        } catch (CannotLoadJaoFileException e) {
+            close();
+            throw e;
+        }
+
+        // Read the json and binary timeline, the same as the other extractors
+        try {
+            if (entries.containsKey("jao.json")) {
+                json = StandardCharsets.UTF_8.decode(getBuffer("jao.json")).toString();
+            }
+            if (entries.containsKey(BinaryFormat.FILENAME)) {
+                binary = toArray(getBuffer(BinaryFormat.FILENAME));
+            }
+        } catch (ContentFileDoesNotExistException | RuntimeException e) {
+            close();
+            throw new CannotLoadJaoFileContentException(filePath, e);
+        }
+
+        // Throw an exception in case we have no json nor binary timeline
+        if (json == null && binary == null) {
+            close();
+            throw new CannotLoadJaoFileException(filePath,
+                    new RuntimeException("No file named jao.json has been found."));
+        }
+    }
+
+    /**
+     * Finds the end of central directory record, searching backwards since it
+     * may be followed by a comment, and reads all entries listed in it.
+     */
+    private void readDirectory() throws CannotLoadJaoFileException {
+        int end = -1;
+        int lowest = Math.max(0, mapped.limit() - END_OF_DIRECTORY_SIZE - MAX_COMMENT_SIZE);
+        for (int i = mapped.limit() - END_OF_DIRECTORY_SIZE; i >= lowest; i--) {
+            if (mapped.getInt(i) == END_OF_DIRECTORY) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            throw new CannotLoadJaoFileException(filePath, new RuntimeException("Not a zip file."));
+        }
+
+        int count = Short.toUnsignedInt(mapped.getShort(end + 10));
+        int position = mapped.getInt(end + 16);
+        if (count == 0xFFFF || position == -1) {
+            throw new CannotLoadJaoFileException(filePath, new RuntimeException("Zip64 files are not supported."));
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (mapped.getInt(position) != DIRECTORY_ENTRY) {
+                throw new CannotLoadJaoFileException(filePath, new RuntimeException("Corrupt zip directory."));
+            }
+            int method = Short.toUnsignedInt(mapped.getShort(position + 10));
+            int compressedSize = mapped.getInt(position + 20);
+            int size = mapped.getInt(position + 24);
+            int nameLength = Short.toUnsignedInt(mapped.getShort(position + 28));
+            int extraLength = Short.toUnsignedInt(mapped.getShort(position + 30));
+            int commentLength = Short.toUnsignedInt(mapped.getShort(position + 32));
+            int headerOffset = mapped.getInt(position + 42);
+            if (compressedSize < 0 || size < 0 || headerOffset < 0) {
+                throw new CannotLoadJaoFileException(filePath,
+                        new RuntimeException("Zip64 files are not supported."));
+            }
+
+            byte[] name = new byte[nameLength];
+            ByteBuffer nameBuffer = mapped.duplicate();
+            nameBuffer.position(position + 46);
+            nameBuffer.get(name);
+            String entryName = new String(name, StandardCharsets.UTF_8);
+
+            if (!entryName.endsWith("/")) {
+                entries.put(entryName, new Entry(method, headerOffset, compressedSize, size));
+            }
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+    }
+
+    /**
+     * Returns the contents of an entry. Stored entries are read-only slices of
+     * the mapped file, compressed ones are inflated into a new heap buffer.
+     *
+     * @throws ContentFileDoesNotExistException In case the file was not found.
+     */
+    @Override
+    public ByteBuffer getBuffer(String name) throws ContentFileDoesNotExistException {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            throw new ContentFileDoesNotExistException(name);
+        }
+
+        // The local header may have its own extra field, so the data offset is
+        // taken from it and not from the directory.
+        int header = entry.headerOffset;
+        if (mapped.getInt(header) != LOCAL_HEADER) {
+            throw new IllegalStateException(String.format("Corrupt zip entry '%s' in '%s'.", name, filePath));
+        }
+        int start = header + LOCAL_HEADER_SIZE + Short.toUnsignedInt(mapped.getShort(header + 26))
+                + Short.toUnsignedInt(mapped.getShort(header + 28));
+
+        ByteBuffer data = mapped.asReadOnlyBuffer();
+        data.position(start);
+        data.limit(start + entry.compressedSize);
+        data = data.slice();
+
+        switch (entry.method) {
+            case STORED:
+                return data;
+            case DEFLATED:
+                return ByteBuffer.wrap(inflate(name, data, entry.size)).asReadOnlyBuffer();
+            default:
+                throw new IllegalStateException(String.format(
+                        "Zip entry '%s' in '%s' uses an unsupported compression method.", name, filePath));
+        }
+    }
+
+    private byte[] inflate(String name, ByteBuffer data, int size) {
+        byte[] input = toArray(data);
+        byte[] output = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+            int read = 0;
+            while (read < size && !inflater.finished()) {
+                int count = inflater.inflate(output, read, size - read);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += count;
+            }
+            if (read != size) {
+                throw new IllegalStateException(String.format("Corrupt zip entry '%s' in '%s'.", name, filePath));
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException(String.format("Corrupt zip entry '%s' in '%s'.", name, filePath), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Will return a copy of the bytes from the given file. Prefer getBuffer(),
+     * which does not copy stored entries.
+     *
+     * @throws ContentFileDoesNotExistException In case the file was not found.
+     */
+    @Override
+    public byte[] getData(String name) throws ContentFileDoesNotExistException {
+        return toArray(getBuffer(name));
+    }
+
+    /**
+     * Checks if an entry is stored without compression, and so is returned by
+     * getBuffer() without copies.
+     *
+     * @param name Name of the entry.
+     * @return true if the entry is stored.
+     * @throws ContentFileDoesNotExistException In case the file was not found.
+     */
+    public boolean isStored(String name) throws ContentFileDoesNotExistException {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            throw new ContentFileDoesNotExistException(name);
+        }
+        return entry.method == STORED;
+    }
+
+    @Override
+    public String getJson() {
+        return json;
+    }
+
+    @Override
+    public byte[] getBinary() {
+        return binary;
+    }
+
+    @Override
+    public String getFilename() {
+        return filePath;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing to do, the mapping stays valid either way
+        }
+    }
+
+}
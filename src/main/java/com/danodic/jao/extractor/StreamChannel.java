@@ -0,0 +1,142 @@
+package com.danodic.jao.extractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A read-only SeekableByteChannel over a stream that can be opened again, such
+ * as a compressed zip entry. Only a small buffer is held in memory. Seeking
+ * forward skips the stream, and seeking backwards opens it again and skips
+ * from the start, so random access is slower than with a file.
+ */
+final class StreamChannel implements SeekableByteChannel {
+
+    /**
+     * Opens the stream from its start.
+     */
+    interface Opener {
+
+        InputStream open() throws IOException;
+
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Opener opener;
+    private final long size;
+    private final byte[] chunk;
+    private InputStream stream;
+    private long streamPosition;
+    private long position;
+    private boolean open;
+
+    StreamChannel(Opener opener, long size) {
+        this.opener = opener;
+        this.size = size;
+        this.chunk = new byte[BUFFER_SIZE];
+        this.stream = null;
+        this.streamPosition = 0L;
+        this.position = 0L;
+        this.open = true;
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer target) throws IOException {
+        checkOpen();
+        if (position >= size) {
+            return -1;
+        }
+        seekStream();
+
+        int count = stream.read(chunk, 0, Math.min(chunk.length, target.remaining()));
+        if (count < 0) {
+            return -1;
+        }
+        target.put(chunk, 0, count);
+        streamPosition += count;
+        position += count;
+        return count;
+    }
+
+    /**
+     * Moves the stream to the position of the channel.
+     */
+    private void seekStream() throws IOException {
+        if (stream == null || position < streamPosition) {
+            closeStream();
+            stream = opener.open();
+            streamPosition = 0L;
+        }
+        while (streamPosition < position) {
+            long skipped = stream.skip(position - streamPosition);
+            if (skipped <= 0) {
+                if (stream.read() < 0) {
+                    break;
+                }
+                skipped = 1;
+            }
+            streamPosition += skipped;
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer source) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws ClosedChannelException {
+        checkOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(long position) throws ClosedChannelException {
+        checkOpen();
+        if (position < 0L) {
+            throw new IllegalArgumentException("The position cannot be negative.");
+        }
+        this.position = position;
+        return this;
+    }
+
+    @Override
+    public synchronized long size() throws ClosedChannelException {
+        checkOpen();
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        open = false;
+        closeStream();
+    }
+
+    private void closeStream() throws IOException {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    private void checkOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+
+}
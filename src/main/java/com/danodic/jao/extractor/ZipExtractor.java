@@ -1,11 +1,22 @@
 package com.danodic.jao.extractor;
 
+import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -14,17 +25,35 @@ import org.apache.commons.io.IOUtils;
 import com.danodic.jao.exceptions.CannotLoadJaoFileContentException;
 import com.danodic.jao.exceptions.CannotLoadJaoFileException;
 import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
+import com.danodic.jao.parser.BinaryFormat;
 
 /**
  * This is the implementation of the extractor for zip files. The .jao file is
  * expected to be just a zip file renamed to .jao, so we use the standard java
  * zip implementation for this.
+ *
+ * In lazy mode (see ExtractorConfiguration) only the central directory of the
+ * zip is read when the extractor is created, along with jao.json and jao.bin.
+ * Every other entry is inflated the first time it is requested.
+ *
+ * Eager extractors with an executor inflate the entries in parallel, split in
+ * groups of about the same compressed size. Each group opens the zip file
+ * again, so that the reads do not wait for each other.
  */
-public class ZipExtractor implements IExtractor {
+public class ZipExtractor implements IExtractor, Closeable {
 
 	private String json;
+	private byte[] binary;
 	private Map<String, byte[]> data;
-        private String filePath;
+	private String filePath;
+	private ContentStore store;
+
+	// Used in lazy mode only
+	private Map<String, ZipEntry> entries;
+	private volatile ZipFile zipFile;
+	private ContentCache cache;
+	private boolean lazy;
+	private volatile boolean closed;
 
 	/**
 	 * @param filePath The name of the file to be loaded.
@@ -35,16 +64,39 @@ public class ZipExtractor implements IExtractor {
 	 *                                           some reason.
 	 */
 	public ZipExtractor(String filePath) throws CannotLoadJaoFileException, CannotLoadJaoFileContentException {
+		this(filePath, new ExtractorConfiguration());
+	}
+
+	/**
+	 * @param filePath      The name of the file to be loaded.
+	 * @param configuration Tells if the entries are loaded now or on demand.
+	 * @throws CannotLoadJaoFileException        In case the file could not be
+	 *                                           loaded by some reason.
+	 * @throws CannotLoadJaoFileContentException In case one of the files inside the
+	 *                                           jao file could not be loaded by
+	 *                                           some reason.
+	 */
+	public ZipExtractor(String filePath, ExtractorConfiguration configuration)
+			throws CannotLoadJaoFileException, CannotLoadJaoFileContentException {
 
 		ZipFile file;
 		ZipEntry entry;
-		Enumeration<? extends ZipEntry> entries;
+		boolean indexed = false;
+		Enumeration<? extends ZipEntry> zipEntries;
 		InputStream inputStream;
+		List<ZipEntry> pending = new ArrayList<>();
+		Executor executor = configuration.getExecutor();
 
 		// Initialize data
-                this.filePath = filePath;
+		this.filePath = filePath;
 		data = new HashMap<>();
+		entries = new HashMap<>();
 		json = null;
+		binary = null;
+		lazy = configuration.isLazy();
+		cache = lazy && configuration.getCacheSize() > 0 ? new ContentCache(configuration.getCacheSize()) : null;
+		closed = false;
+		store = configuration.getContentStore();
 
 		// Create the zip file object
 		try {
@@ -56,56 +108,245 @@ public class ZipExtractor implements IExtractor {
 		try {
 
 			// Get the entries
-			entries = file.entries();
+			zipEntries = file.entries();
 
 			// Go over each entry
-			while (entries.hasMoreElements()) {
+			while (zipEntries.hasMoreElements()) {
 
 				try {
 					// Get the entry
-					entry = entries.nextElement();
-
-					// Get the input stream
-					inputStream = file.getInputStream(entry);
+					entry = zipEntries.nextElement();
 
 					// Check if this is the json or just data
 					if (entry.getName().equals("jao.json")) {
-						json = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+						json = IOUtils.toString(file.getInputStream(entry), StandardCharsets.UTF_8);
+						continue;
+					}
+
+					// The binary timeline is kept apart from the data too
+					if (entry.getName().equals(BinaryFormat.FILENAME)) {
+						binary = intern(IOUtils.toByteArray(file.getInputStream(entry)));
+						continue;
+					}
+
+					// In lazy mode only the entry is kept, its data is read later
+					if (lazy) {
+						if (!entry.isDirectory())
+							entries.put(entry.getName(), entry);
+						continue;
+					}
+
+					// Leave the entry to be loaded by the executor
+					if (executor != null) {
+						pending.add(entry);
 						continue;
 					}
 
 					// Just add the file to the entry list
-					data.put(entry.getName(), IOUtils.toByteArray(inputStream));
+					inputStream = file.getInputStream(entry);
+					data.put(entry.getName(), intern(IOUtils.toByteArray(inputStream)));
 
 				} catch (IOException e) {
 					throw new CannotLoadJaoFileContentException(filePath, e);
 				}
 			}
+			indexed = true;
 
 		} finally {
-			try {
-				file.close();
-			} catch (IOException e) {
-			} // There is no need to handle exception to close file as we just want to finish
-			  // up with this file handling.
+			// The file is only kept open in case all entries could be read
+			if (indexed && lazy && configuration.isKeepOpen()) {
+				zipFile = file;
+			} else {
+				closeQuietly(file);
+			}
 		}
 
-		// Throw an exception in case we have no json
-		if (json == null) {
+		// Load the remaining entries in parallel
+		if (!pending.isEmpty())
+			loadParallel(pending, executor, configuration.getParallelism());
+
+		// Throw an exception in case we have no json nor binary timeline
+		if (json == null && binary == null) {
+			close();
 			throw new CannotLoadJaoFileException(filePath,
 					new RuntimeException("No file named jao.json has been found."));
 		}
 	}
 
 	/**
-	 * Will return the bytes from the given file.
-	 * 
+	 * Splits the entries in groups of about the same compressed size and reads
+	 * each group in the executor, through its own handle to the zip file.
+	 */
+	private void loadParallel(List<ZipEntry> pending, Executor executor, int parallelism)
+			throws CannotLoadJaoFileContentException {
+
+		// Give the biggest entries out first, always to the lightest group
+		pending.sort(Comparator.comparingLong(ZipEntry::getCompressedSize).reversed());
+		int groupCount = Math.min(parallelism, pending.size());
+		List<List<ZipEntry>> groups = new ArrayList<>();
+		long[] groupSizes = new long[groupCount];
+		for (int i = 0; i < groupCount; i++)
+			groups.add(new ArrayList<>());
+		for (ZipEntry entry : pending) {
+			int lightest = 0;
+			for (int i = 1; i < groupCount; i++) {
+				if (groupSizes[i] < groupSizes[lightest])
+					lightest = i;
+			}
+			groups.get(lightest).add(entry);
+			groupSizes[lightest] += Math.max(0L, entry.getCompressedSize());
+		}
+
+		List<CompletableFuture<Map<String, byte[]>>> futures = new ArrayList<>();
+		for (List<ZipEntry> group : groups) {
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				Map<String, byte[]> loaded = new HashMap<>();
+				try (ZipFile groupFile = new ZipFile(filePath)) {
+					for (ZipEntry entry : group) {
+						try (InputStream inputStream = groupFile.getInputStream(entry)) {
+							loaded.put(entry.getName(), intern(IOUtils.toByteArray(inputStream)));
+						}
+					}
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+				return loaded;
+			}, executor));
+		}
+
+		for (CompletableFuture<Map<String, byte[]>> future : futures) {
+			try {
+				data.putAll(future.join());
+			} catch (CompletionException e) {
+				throw new CannotLoadJaoFileContentException(filePath,
+						e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+			}
+		}
+	}
+
+	/**
+	 * Will return the bytes from the given file. In lazy mode the entry is
+	 * inflated now, unless it is still in the cache.
+	 *
 	 * @throws ContentFileDoesNotExistException In case the file was not found.
+	 * @throws UncheckedIOException             In case the entry could not be
+	 *                                          read from the zip file.
 	 */
 	public byte[] getData(String name) throws ContentFileDoesNotExistException {
-		if (!data.containsKey(name))
+		if (!lazy) {
+			if (!data.containsKey(name))
+				throw new ContentFileDoesNotExistException(name);
+			return data.get(name);
+		}
+
+		ZipEntry entry = getEntry(name);
+		byte[] bytes = cache == null ? null : cache.get(name);
+		if (bytes == null) {
+			bytes = intern(inflate(entry));
+			if (cache != null)
+				cache.put(name, bytes);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Reads an entry from the zip file.
+	 */
+	private byte[] inflate(ZipEntry entry) {
+		try (InputStream inputStream = openEntry(entry)) {
+			return IOUtils.toByteArray(inputStream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the shared copy of the bytes in case there is a content store.
+	 */
+	private byte[] intern(byte[] bytes) {
+		return store == null ? bytes : store.intern(bytes);
+	}
+
+	/**
+	 * Opens a stream to an entry, opening the zip file again in case it is not
+	 * kept open. In that case the file is closed along with the stream.
+	 */
+	private InputStream openEntry(ZipEntry entry) throws IOException {
+		if (closed)
+			throw new IllegalStateException(String.format("The extractor for '%s' has been closed.", filePath));
+
+		ZipFile openFile = zipFile;
+		if (openFile != null)
+			return openFile.getInputStream(entry);
+
+		ZipFile file = new ZipFile(filePath);
+		try {
+			return new FilterInputStream(file.getInputStream(entry)) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						file.close();
+					}
+				}
+			};
+		} catch (IOException | RuntimeException e) {
+			closeQuietly(file);
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a stream with the contents of a file. In lazy mode the entry is
+	 * inflated while it is read, unless it is in the cache.
+	 *
+	 * @throws ContentFileDoesNotExistException In case the file was not found.
+	 * @throws UncheckedIOException             In case the entry could not be
+	 *                                          opened.
+	 */
+	@Override
+	public InputStream getStream(String name) throws ContentFileDoesNotExistException {
+		if (!lazy)
+			return IExtractor.super.getStream(name);
+
+		ZipEntry entry = getEntry(name);
+		byte[] cached = cache == null ? null : cache.get(name);
+		if (cached != null)
+			return new BufferInputStream(ByteBuffer.wrap(cached));
+
+		try {
+			return openEntry(entry);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns a channel with the contents of a file. In lazy mode the entry is
+	 * inflated while it is read, so seeking backwards inflates it again from
+	 * the start.
+	 *
+	 * @throws ContentFileDoesNotExistException In case the file was not found.
+	 */
+	@Override
+	public SeekableByteChannel getChannel(String name) throws ContentFileDoesNotExistException {
+		if (!lazy)
+			return IExtractor.super.getChannel(name);
+
+		ZipEntry entry = getEntry(name);
+		byte[] cached = cache == null ? null : cache.get(name);
+		if (cached != null)
+			return new BufferChannel(ByteBuffer.wrap(cached));
+
+		return new StreamChannel(() -> openEntry(entry), entry.getSize());
+	}
+
+	private ZipEntry getEntry(String name) throws ContentFileDoesNotExistException {
+		ZipEntry entry = entries.get(name);
+		if (entry == null)
 			throw new ContentFileDoesNotExistException(name);
-		return data.get(name);
+		return entry;
 	}
 
 	/**
@@ -115,9 +356,40 @@ public class ZipExtractor implements IExtractor {
 		return this.json;
 	}
 
-    @Override
-    public String getFilename() {
-        return filePath;
-    }
+	/**
+	 * Will return the binary timeline from the jao file, if there is one.
+	 */
+	@Override
+	public byte[] getBinary() {
+		return this.binary;
+	}
+
+	@Override
+	public String getFilename() {
+		return filePath;
+	}
+
+	/**
+	 * Releases the zip file held by a lazy extractor, as well as its cache. Does
+	 * nothing for eager extractors, which hold no file.
+	 */
+	@Override
+	public void close() {
+		closed = lazy;
+		if (zipFile != null) {
+			closeQuietly(zipFile);
+			zipFile = null;
+		}
+		if (cache != null)
+			cache.clear();
+	}
+
+	private static void closeQuietly(ZipFile file) {
+		try {
+			file.close();
+		} catch (IOException e) {
+		} // There is no need to handle exception to close file as we just want to finish
+		  // up with this file handling.
+	}
 
 }
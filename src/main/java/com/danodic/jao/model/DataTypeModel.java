@@ -30,6 +30,7 @@ public class DataTypeModel {
         attributes.forEach((key, value) -> data.put(key, value));
         
         DataTypeModel clone = new DataTypeModel();
+        clone.setType(type);
         clone.setAttributes(data);
         
         return clone;
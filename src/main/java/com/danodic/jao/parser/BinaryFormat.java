@@ -0,0 +1,94 @@
+package com.danodic.jao.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Describes the binary timeline format, the precompiled version of jao.json
+ * generated by the JaoCompiler. It is stored as jao.bin next to jao.json (or
+ * instead of it) and is picked up by the extractors automatically.
+ *
+ * All numbers are big endian, as written by DataOutputStream:
+ *
+ * <pre>
+ * header   int MAGIC, short VERSION, int checksum of jao.json
+ * strings  int count, then for each string an int length and UTF-8 bytes
+ * layers   int count, then for each layer:
+ *            byte hasDataType, [string type, map attributes]
+ *            int count, action... (initializers)
+ *            int count, then for each event:
+ *              string name, int count, then for each action long when, action
+ * action   string library, string name, string when, string attribute,
+ *          map attributes
+ * map      int count (NONE for null), then pairs of string key, string value
+ * string   int index in the string table, or NONE for null
+ * </pre>
+ *
+ * Strings are stored once in the table and referenced by index. The times of
+ * the actions are already resolved to milliseconds and the actions of each
+ * event are stored sorted by that time.
+ */
+public final class BinaryFormat {
+
+    /**
+     * Name of the binary timeline inside a jao file or folder.
+     */
+    public static final String FILENAME = "jao.bin";
+
+    /**
+     * The bytes "JAOB".
+     */
+    public static final int MAGIC = 0x4A414F42;
+
+    /**
+     * Version of the format. Files with a different version are ignored and the
+     * json is parsed instead.
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * Index used for null strings and maps.
+     */
+    public static final int NONE = -1;
+
+    private static final int HEADER_SIZE = 10;
+
+    private BinaryFormat() {
+
+    }
+
+    /**
+     * Returns the checksum of the json a binary timeline has been compiled from.
+     *
+     * @param json The contents of jao.json.
+     * @return The CRC32 of the UTF-8 bytes of the json.
+     */
+    public static int checksum(String json) {
+        CRC32 crc = new CRC32();
+        crc.update(json.getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Checks if a binary timeline can be used in place of the json. That is the
+     * case when it has the current version and was compiled from that same
+     * json, or when there is no json at all.
+     *
+     * @param binary The contents of jao.bin, may be null.
+     * @param json The contents of jao.json, may be null.
+     * @return true if the binary can be loaded instead of the json.
+     */
+    public static boolean isCurrent(byte[] binary, String json) {
+        if (binary == null || binary.length < HEADER_SIZE) {
+            return false;
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(binary, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getShort() != VERSION) {
+            return false;
+        }
+        return json == null || header.getInt() == checksum(json);
+    }
+
+}
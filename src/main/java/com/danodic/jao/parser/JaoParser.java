@@ -1,18 +1,34 @@
 package com.danodic.jao.parser;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.danodic.jao.action.ActionFactory;
 import com.danodic.jao.action.IAction;
 import com.danodic.jao.action.IInitializer;
 import com.danodic.jao.core.Jao;
 import com.danodic.jao.core.JaoLayer;
+import com.danodic.jao.core.JaoTemplate;
+import com.danodic.jao.core.LayerTemplate;
 import com.danodic.jao.event.Event;
 import com.danodic.jao.event.EventAction;
+import com.danodic.jao.event.EventTemplate;
 import com.danodic.jao.event.InitializerEvent;
 import com.danodic.jao.exceptions.CannotFindJaoActionException;
 import com.danodic.jao.exceptions.CannotFindJaoInitializerException;
@@ -22,12 +38,15 @@ import com.danodic.jao.exceptions.CannotInstantiateJaoRenderer;
 import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
 import com.danodic.jao.extractor.IExtractor;
 import com.danodic.jao.model.ActionModel;
-import com.danodic.jao.model.EventModel;
-import com.danodic.jao.model.JaoModel;
-import com.danodic.jao.model.LayerModel;
+import com.danodic.jao.model.DataTypeModel;
 import com.danodic.jao.parser.expressions.TimeExpressionParser;
 import com.danodic.jao.renderer.IRenderer;
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
 /**
  * This class is the main parser, that will extract the information from the
@@ -37,8 +56,12 @@ import com.google.gson.Gson;
  * @author danodic
  */
 public class JaoParser {
-    
-        
+
+	/**
+	 * Gson holds no state between calls and is thread safe, so a single instance
+	 * is shared by all parsers.
+	 */
+	private static final Gson GSON = new Gson();
 
 	private JaoParser() {
 		
@@ -65,90 +88,179 @@ public class JaoParser {
 	public static Jao parseJson(String json, IExtractor extractor, Class<? extends IRenderer> renderer)
 			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
 			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		return parseJson(new StringReader(json), extractor, renderer);
+	}
 
-		// Get the Jao Model
-		JaoModel model = deserializeJson(json);
+	/**
+	 * Same as parseJson(), but reads the json from a Reader. The json is read as
+	 * a stream of tokens and the layers, events and actions are instantiated as
+	 * they are found, so the model of the whole file is never held in memory.
+	 * Only the model of a single action exists at a time, since the actions are
+	 * loaded from it.
+	 * 
+	 * The reader is not closed.
+	 * 
+	 * @param json     A reader with the contents of the json to be parsed.
+	 * @param renderer A reference to the desired renderer class.
+	 * @return An instance of Jao.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
+	 * @throws CannotFindJaoInitializerException
+	 * @throws CannotFindJaoLibraryException
+	 * @throws CannotFindJaoActionException
+	 * @throws ContentFileDoesNotExistException
+	 */
+	public static Jao parseJson(Reader json, IExtractor extractor, Class<? extends IRenderer> renderer)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
 
 		// Initialize the action factory to find all the entries in the classpath
-                ActionFactory.initializeFactory();
+		ActionFactory.initializeFactory();
 
-		// Parse the model and return the instance
-		return parseJaoModel(model, extractor, renderer);
+		return buildJao(streamLayers(json, renderer, false), extractor, null);
 	}
 
 	/**
-	 * Transform the JSON string into a JaoModel instance.
+	 * Will parse the animation held by the extractor. The binary timeline is used
+	 * when the extractor has one that is up to date with the json, otherwise the
+	 * json is parsed.
 	 * 
-	 * @param json A JSON file following the JAO schema.
-	 * @return An instance of JaoModel with all the json data fed into it.
+	 * @param extractor The extractor holding the data of the file.
+	 * @param renderer  A reference to the desired renderer class.
+	 * @return An instance of Jao.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
+	 * @throws CannotFindJaoInitializerException
+	 * @throws CannotFindJaoLibraryException
+	 * @throws CannotFindJaoActionException
+	 * @throws ContentFileDoesNotExistException
 	 */
-	private static JaoModel deserializeJson(String json) {
-		return new Gson().fromJson(json, JaoModel.class);
+	public static Jao parse(IExtractor extractor, Class<? extends IRenderer> renderer)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		byte[] binary = extractor.getBinary();
+		if (BinaryFormat.isCurrent(binary, extractor.getJson()))
+			return parseBinary(binary, extractor, renderer);
+		return parseJson(extractor.getJson(), extractor, renderer);
 	}
 
 	/**
-	 * Will parse a JaoModel and populate a Jao instance with the information from
-	 * the JSON file.
+	 * Same as parse(IExtractor, Class), but builds the layers in parallel using
+	 * the executor provided. See parseJson(String, IExtractor, Class, Executor).
 	 * 
-	 * @param model    The model extracted from the JSON file.
-	 * @param renderer The renderer class that will be used.
-	 * @return An instance of Jao with all the information needed in it.
-	 * @throws CannotInstantiateJaoActionException In case an action couldn`t be
-	 *                                             instantiated.
-	 * @throws CannotInstantiateJaoRenderer        In case the renderer couldn`t be
-	 *                                             instantiated.
+	 * @param extractor The extractor holding the data of the file.
+	 * @param renderer  A reference to the desired renderer class.
+	 * @param executor  The executor that will build the layers.
+	 * @return An instance of Jao.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
 	 * @throws CannotFindJaoInitializerException
 	 * @throws CannotFindJaoLibraryException
 	 * @throws CannotFindJaoActionException
-	 * @throws ContentFileDoesNotExistException 
+	 * @throws ContentFileDoesNotExistException
 	 */
-	private static Jao parseJaoModel(JaoModel model, IExtractor extractor, Class<? extends IRenderer> renderer)
+	public static Jao parse(IExtractor extractor, Class<? extends IRenderer> renderer, Executor executor)
 			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
 			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		byte[] binary = extractor.getBinary();
+		if (BinaryFormat.isCurrent(binary, extractor.getJson())) {
+			ActionFactory.initializeFactory();
+			return buildJao(readBinaryLayers(binary, renderer, true), extractor, executor);
+		}
+		return parseJson(extractor.getJson(), extractor, renderer, executor);
+	}
 
-		// Parse the layers in the model extracted from the JSON
-		Jao jao = new Jao();
-		jao.setExtractor(extractor);
-		
-		List<JaoLayer> layers = parseLayers(jao, model.getLayers(), renderer);
+	/**
+	 * Will load a binary timeline generated by the JaoCompiler and instantiate a
+	 * Jao object from it. The times of the actions are already resolved and the
+	 * strings are shared, so this is faster than parsing the json.
+	 * 
+	 * @param binary   The contents of jao.bin.
+	 * @param renderer A reference to the desired renderer class.
+	 * @return An instance of Jao.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
+	 * @throws CannotFindJaoInitializerException
+	 * @throws CannotFindJaoLibraryException
+	 * @throws CannotFindJaoActionException
+	 * @throws ContentFileDoesNotExistException
+	 */
+	public static Jao parseBinary(byte[] binary, IExtractor extractor, Class<? extends IRenderer> renderer)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		ActionFactory.initializeFactory();
 
-		// Populate the main Jao information and return it
-		jao.addLayers(layers);
-		return jao;
+		return buildJao(readBinaryLayers(binary, renderer, false), extractor, null);
+	}
+
+	/**
+	 * Same as parseJson(), but builds the layers in parallel using the executor
+	 * provided. The json is still read as a stream in the calling thread, but
+	 * the models of the actions are kept instead of being loaded right away.
+	 * Layers are independent from each other at parse time, so each one is then
+	 * built in its own task (renderer, data type, initializers and actions) and
+	 * they are added to the Jao instance in the order they are declared in the
+	 * json.
+	 * 
+	 * The renderers, initializers and actions used by the file, as well as the
+	 * extractor, must be safe to be created and loaded from different threads.
+	 * 
+	 * As soon as a layer fails, the layers that have not started yet are
+	 * cancelled and the error of the layer that failed is thrown.
+	 * 
+	 * @param json     The contents of the json to be parsed.
+	 * @param renderer A reference to the desired renderer class.
+	 * @param executor The executor that will build the layers.
+	 * @return An instance of Jao.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
+	 * @throws CannotFindJaoInitializerException
+	 * @throws CannotFindJaoLibraryException
+	 * @throws CannotFindJaoActionException
+	 * @throws ContentFileDoesNotExistException
+	 */
+	public static Jao parseJson(String json, IExtractor extractor, Class<? extends IRenderer> renderer,
+			Executor executor)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		ActionFactory.initializeFactory();
+		return buildJao(streamLayers(new StringReader(json), renderer, true), extractor, executor);
 	}
 
 	/**
-	 * Will parse each individual layer and return a list of layers to be added to
-	 * the main Jao instance.
+	 * Will parse the json provided as a string into a JaoTemplate. The template
+	 * holds the compiled timelines and the prototypes of the actions, initializers
+	 * and renderers, and can create any number of Jao instances without parsing
+	 * the json again. All classes used by the file must implement clone() for
+	 * that to work.
 	 * 
-	 * @param layers   List of layer models parsed from the JSON file.
-	 * @param renderer The class of the renderer to be used for this layer.
-	 * @return A list of JaoLayer instances.
-	 * @throws CannotInstantiateJaoActionException In case an action couldn`t be
-	 *                                             initialized.
-	 * @throws CannotInstantiateJaoRenderer        In case the rendered couldn`t be
-	 *                                             initialized.
+	 * @param json     The contents of the json to be parsed.
+	 * @param renderer A reference to the desired renderer class.
+	 * @return An instance of JaoTemplate.
+	 * @throws CannotInstantiateJaoActionException In case one of the actions used
+	 *                                             couldn`t be instantiated.
+	 * @throws CannotInstantiateJaoRenderer        In case the renderer couldn`t be
+	 *                                             instantiated.
 	 * @throws CannotFindJaoInitializerException
 	 * @throws CannotFindJaoLibraryException
 	 * @throws CannotFindJaoActionException
-	 * @throws ContentFileDoesNotExistException 
+	 * @throws ContentFileDoesNotExistException
 	 */
-	private static List<JaoLayer> parseLayers(Jao jao, List<LayerModel> layers, Class<? extends IRenderer> renderer)
+	public static JaoTemplate parseTemplate(String json, IExtractor extractor, Class<? extends IRenderer> renderer)
 			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
 			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
-		List<JaoLayer> layerInstances = new ArrayList<>();
-		for (LayerModel layer : layers)
-			layerInstances.add(parseLayer(jao, layer, renderer));
-		return layerInstances;
+		return parseTemplate(new StringReader(json), extractor, renderer);
 	}
 
 	/**
-	 * Parse the layer models, add both the events and the initializers to the
-	 * layer. W
+	 * Same as parseTemplate(), but reads the json from a Reader as a stream of
+	 * tokens. See parseJson(Reader, IExtractor, Class).
 	 * 
-	 * @param layerModel
-	 * @param renderer
-	 * @return
+	 * The reader is not closed.
+	 * 
+	 * @param json     A reader with the contents of the json to be parsed.
+	 * @param renderer A reference to the desired renderer class.
+	 * @return An instance of JaoTemplate.
 	 * @throws CannotInstantiateJaoActionException
 	 * @throws CannotInstantiateJaoRenderer
 	 * @throws CannotFindJaoInitializerException
@@ -156,144 +268,472 @@ public class JaoParser {
 	 * @throws CannotFindJaoActionException
 	 * @throws ContentFileDoesNotExistException
 	 */
-	private static JaoLayer parseLayer(Jao jao, LayerModel layerModel, Class<? extends IRenderer> renderer)
+	public static JaoTemplate parseTemplate(Reader json, IExtractor extractor, Class<? extends IRenderer> renderer)
 			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
 			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
-		// Create the renderer and set the data type into it
-		IRenderer rendererImpl = getRendererInstance(renderer);
-		rendererImpl.setDataType(layerModel.getDataType(), jao.getExtractor());
 
-		// Instantiate the JAO layer and add the initializers and events to it
-		JaoLayer layer = new JaoLayer(jao, rendererImpl);
-		layer.addInitializers(parseInitializers(layerModel.getEvents()));
-		layer.addEvents(parseEvents(layer, layerModel.getEvents()));
+		// Initialize the action factory to find all the entries in the classpath
+		ActionFactory.initializeFactory();
 
-		return layer;
+		return buildTemplate(streamLayers(json, renderer, false), extractor, null);
 	}
 
 	/**
-	 * Will instantiate the renderer class provided. That renderer must be able to
-	 * be instantiated using an argument-free constructor.
+	 * Will parse the animation held by the extractor into a JaoTemplate, using
+	 * the binary timeline when it is up to date. See parse(IExtractor, Class).
 	 * 
-	 * @param renderer A class corresponding to the renderer to be used.
-	 * @return An instance of the renderer provided.
+	 * @param extractor The extractor holding the data of the file.
+	 * @param renderer  A reference to the desired renderer class.
+	 * @return An instance of JaoTemplate.
+	 * @throws CannotInstantiateJaoActionException
 	 * @throws CannotInstantiateJaoRenderer
+	 * @throws CannotFindJaoInitializerException
+	 * @throws CannotFindJaoLibraryException
+	 * @throws CannotFindJaoActionException
+	 * @throws ContentFileDoesNotExistException
 	 */
-	private static IRenderer getRendererInstance(Class<? extends IRenderer> renderer)
-			throws CannotInstantiateJaoRenderer {
-		IRenderer rendererImpl = null;
-		for (Constructor<?> constructor : renderer.getConstructors()) {
-			if (constructor.getParameterCount() == 0) {
-				try {
-					rendererImpl = (IRenderer) constructor.newInstance();
-					break;
-				} catch (Exception e) {
-					throw new CannotInstantiateJaoRenderer(e);
-				}
-			}
-		}
-		if (rendererImpl == null) {
-			throw new CannotInstantiateJaoRenderer(new RuntimeException(String
-					.format("No argument-free constructor was found for renderer %s.", renderer.getClass().getName())));
+	public static JaoTemplate parseTemplate(IExtractor extractor, Class<? extends IRenderer> renderer)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		byte[] binary = extractor.getBinary();
+		if (BinaryFormat.isCurrent(binary, extractor.getJson()))
+			return parseBinaryTemplate(binary, extractor, renderer);
+		return parseTemplate(extractor.getJson(), extractor, renderer);
+	}
+
+	/**
+	 * Same as parseTemplate(IExtractor, Class), but compiles the layers in
+	 * parallel using the executor provided. See parseJson(String, IExtractor,
+	 * Class, Executor).
+	 * 
+	 * @param extractor The extractor holding the data of the file.
+	 * @param renderer  A reference to the desired renderer class.
+	 * @param executor  The executor that will compile the layers.
+	 * @return An instance of JaoTemplate.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
+	 * @throws CannotFindJaoInitializerException
+	 * @throws CannotFindJaoLibraryException
+	 * @throws CannotFindJaoActionException
+	 * @throws ContentFileDoesNotExistException
+	 */
+	public static JaoTemplate parseTemplate(IExtractor extractor, Class<? extends IRenderer> renderer,
+			Executor executor)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		byte[] binary = extractor.getBinary();
+		if (BinaryFormat.isCurrent(binary, extractor.getJson())) {
+			ActionFactory.initializeFactory();
+			return buildTemplate(readBinaryLayers(binary, renderer, true), extractor, executor);
 		}
+		return parseTemplate(extractor.getJson(), extractor, renderer, executor);
+	}
 
-		return rendererImpl;
+	/**
+	 * Will load a binary timeline generated by the JaoCompiler into a
+	 * JaoTemplate.
+	 * 
+	 * @param binary   The contents of jao.bin.
+	 * @param renderer A reference to the desired renderer class.
+	 * @return An instance of JaoTemplate.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
+	 * @throws CannotFindJaoInitializerException
+	 * @throws CannotFindJaoLibraryException
+	 * @throws CannotFindJaoActionException
+	 * @throws ContentFileDoesNotExistException
+	 */
+	public static JaoTemplate parseBinaryTemplate(byte[] binary, IExtractor extractor,
+			Class<? extends IRenderer> renderer)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		ActionFactory.initializeFactory();
+
+		return buildTemplate(readBinaryLayers(binary, renderer, false), extractor, null);
 	}
 
 	/**
-	 * Will parse all events aside from the "initialize" event.
+	 * Same as parseTemplate(), but compiles the layers in parallel using the
+	 * executor provided. See parseJson(String, IExtractor, Class, Executor).
 	 * 
-	 * @param jaoLayer    The current animation layer, used to instantiate the
-	 *                    initializers.
-	 * @param eventModels The event model data extracted from the JSON file.
-	 * @return A map containing the events listed in the JSON alongside with their
-	 *         names.
-	 * @throws CannotInstantiateJaoActionException In case any of the actions inside
-	 *                                             the events couldn`t be
-	 *                                             instantiated.
+	 * @param json     The contents of the json to be parsed.
+	 * @param renderer A reference to the desired renderer class.
+	 * @param executor The executor that will compile the layers.
+	 * @return An instance of JaoTemplate.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
 	 * @throws CannotFindJaoInitializerException
 	 * @throws CannotFindJaoLibraryException
 	 * @throws CannotFindJaoActionException
+	 * @throws ContentFileDoesNotExistException
 	 */
-	private static Map<String, Event> parseEvents(JaoLayer jaoLayer, List<EventModel> eventModels)
-			throws CannotInstantiateJaoActionException, CannotFindJaoLibraryException, CannotFindJaoActionException {
-		Map<String, Event> events = new HashMap<>();
-		for (EventModel event : eventModels) {
-			if (event.getName().equalsIgnoreCase("initialize"))
-				continue;
-			events.put(event.getName(), parseEvent(jaoLayer, event));
-		}
-		return events;
+	public static JaoTemplate parseTemplate(String json, IExtractor extractor, Class<? extends IRenderer> renderer,
+			Executor executor)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		ActionFactory.initializeFactory();
+		return buildTemplate(streamLayers(new StringReader(json), renderer, true), extractor, executor);
 	}
 
 	/**
-	 * Will parse all actions inside the "initialize" event.
+	 * Binds the layers read from the json or from a binary timeline to a new
+	 * Jao instance.
 	 * 
-	 * @param jaoLayer    The current animation layer, used to instantiate the
-	 *                    initializers.
-	 * @param eventModels The model data extracted from a JSON.
-	 * @return an instance of InitializerEvent containing instances of all
-	 *         initializers ready to run.
-	 * @throws CannotInstantiateJaoActionException In case any of the initializers
-	 *                                             couldn`t be instantiated.
+	 * @param layers    The layers read.
+	 * @param extractor The extractor holding the data of the file.
+	 * @param executor  The executor that will build the layers, or null to build
+	 *                  them in the calling thread.
+	 * @return An instance of Jao.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
 	 * @throws CannotFindJaoInitializerException
 	 * @throws CannotFindJaoLibraryException
+	 * @throws CannotFindJaoActionException
+	 * @throws ContentFileDoesNotExistException
 	 */
-	private static InitializerEvent parseInitializers(List<EventModel> eventModels)
-			throws CannotInstantiateJaoActionException, CannotFindJaoLibraryException,
-			CannotFindJaoInitializerException {
-		InitializerEvent init = new InitializerEvent();
-		for (EventModel event : eventModels) {
-			if (event.getName().equalsIgnoreCase("initialize")) {
-				for (ActionModel action : event.getActions())
-					init.add(parseInitializer(action));
-				break;
-			}
-		}
-		return init;
+	private static Jao buildJao(List<ParsedLayer> layers, IExtractor extractor, Executor executor)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		Jao jao = new Jao();
+		jao.setExtractor(extractor);
+
+		List<Callable<JaoLayer>> tasks = new ArrayList<>();
+		for (ParsedLayer layer : layers)
+			tasks.add(() -> layer.toLayer(jao));
+
+		jao.addLayers(runInOrder(tasks, executor));
+		return jao;
 	}
 
 	/**
-	 * Will generate a new instance of an Event based on the data contained inside
-	 * an EventModel instance.
+	 * Compiles the layers read from the json or from a binary timeline into a
+	 * JaoTemplate.
 	 * 
-	 * @param jaoLayer   The current animation layer.
-	 * @param eventModel The model of the event.
-	 * @return An instance of Event with the data fed by EventModel.
-	 * @throws CannotInstantiateJaoActionException In case the Action cannot be
-	 *                                             instantiated.
+	 * @param layers    The layers read.
+	 * @param extractor The extractor holding the data of the file.
+	 * @param executor  The executor that will compile the layers, or null to
+	 *                  compile them in the calling thread.
+	 * @return An instance of JaoTemplate.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
 	 * @throws CannotFindJaoInitializerException
 	 * @throws CannotFindJaoLibraryException
 	 * @throws CannotFindJaoActionException
+	 * @throws ContentFileDoesNotExistException
 	 */
-	private static Event parseEvent(JaoLayer jaoLayer, EventModel eventModel)
-			throws CannotInstantiateJaoActionException, CannotFindJaoLibraryException, CannotFindJaoActionException {
-		Event event = new Event();
-		event.addActions(parseActions(jaoLayer, eventModel.getActions()));
-		return event;
+	private static JaoTemplate buildTemplate(List<ParsedLayer> layers, IExtractor extractor, Executor executor)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		List<Callable<LayerTemplate>> tasks = new ArrayList<>();
+		for (ParsedLayer layer : layers)
+			tasks.add(() -> layer.toTemplate(extractor));
+
+		return new JaoTemplate(runInOrder(tasks, executor), extractor);
 	}
 
 	/**
-	 * Will parse the action contained in an event and add them to this event.
+	 * Reads the layers from the json. Each layer is returned with its renderer,
+	 * initializers and actions already instantiated, so they only need to be
+	 * wrapped into a JaoLayer or a LayerTemplate. When they are deferred, only
+	 * their models are kept, to be instantiated when the layer is built.
 	 * 
-	 * @param jaoLayer The current animation layer, used to initialize the action
-	 *                 implementations.
-	 * @param event    The event to where the actions are going to be added to.
-	 * @param actions  The list of action models to instantiate the implementations
-	 *                 from.
-	 * @throws CannotInstantiateJaoActionException In case the action could not be
-	 *                                             implemented by some reason.
+	 * @param json     A reader with the contents of the json.
+	 * @param renderer The class of the renderer to be used for the layers.
+	 * @param deferred Whether to defer the instantiation to the build of each
+	 *                 layer, so that it can happen in another thread.
+	 * @return The layers in the order they are declared.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
 	 * @throws CannotFindJaoInitializerException
 	 * @throws CannotFindJaoLibraryException
 	 * @throws CannotFindJaoActionException
 	 */
-	private static List<EventAction> parseActions(JaoLayer jaoLayer, List<ActionModel> actionModels)
-			throws CannotInstantiateJaoActionException, CannotFindJaoLibraryException, CannotFindJaoActionException {
-		List<EventAction> actions = new ArrayList<>();
-		for (ActionModel action : actionModels) {
-			actions.add(parseAction(jaoLayer, action));
+	private static List<ParsedLayer> streamLayers(Reader json, Class<? extends IRenderer> renderer, boolean deferred)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException {
+		List<ParsedLayer> layers = new ArrayList<>();
+		try {
+			JsonReader reader = new JsonReader(json);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (reader.nextName().equals("layers") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+					reader.beginArray();
+					while (reader.hasNext())
+						layers.add(streamLayer(reader, renderer, deferred));
+					reader.endArray();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		} catch (MalformedJsonException e) {
+			throw new JsonSyntaxException(e);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		return layers;
+	}
+
+	/**
+	 * Reads the layers from a binary timeline, as described in BinaryFormat.
+	 * See streamLayers().
+	 * 
+	 * @param binary   The contents of jao.bin.
+	 * @param renderer The class of the renderer to be used for the layers.
+	 * @param deferred Whether to defer the instantiation to the build of each
+	 *                 layer.
+	 * @return The layers in the order they are declared.
+	 * @throws CannotInstantiateJaoActionException
+	 * @throws CannotInstantiateJaoRenderer
+	 * @throws CannotFindJaoInitializerException
+	 * @throws CannotFindJaoLibraryException
+	 * @throws CannotFindJaoActionException
+	 */
+	private static List<ParsedLayer> readBinaryLayers(byte[] binary, Class<? extends IRenderer> renderer,
+			boolean deferred)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException {
+		List<ParsedLayer> layers = new ArrayList<>();
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(binary));
+			if (in.readInt() != BinaryFormat.MAGIC || in.readShort() != BinaryFormat.VERSION)
+				throw new IOException("Not a binary timeline of a supported version.");
+			in.readInt();
+
+			String[] strings = new String[in.readInt()];
+			for (int i = 0; i < strings.length; i++) {
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				strings[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+
+			int layerCount = in.readInt();
+			for (int i = 0; i < layerCount; i++) {
+				ParsedLayer layer = new ParsedLayer(renderer, deferred);
+				if (in.readBoolean()) {
+					layer.dataType = new DataTypeModel();
+					layer.dataType.setType(readString(in, strings));
+					layer.dataType.setAttributes(readMap(in, strings));
+				}
+
+				int initializerCount = in.readInt();
+				for (int j = 0; j < initializerCount; j++)
+					layer.addInitializer(readAction(in, strings));
+				layer.endEvent("initialize");
+
+				int eventCount = in.readInt();
+				for (int j = 0; j < eventCount; j++) {
+					String eventName = readString(in, strings);
+					int actionCount = in.readInt();
+					for (int k = 0; k < actionCount; k++) {
+						long when = in.readLong();
+						layer.addAction(readAction(in, strings), when);
+					}
+					layer.endEvent(eventName);
+				}
+
+				layers.add(layer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return layers;
+	}
+
+	private static ActionModel readAction(DataInputStream in, String[] strings) throws IOException {
+		ActionModel action = new ActionModel();
+		action.setLibrary(readString(in, strings));
+		action.setName(readString(in, strings));
+		action.setWhen(readString(in, strings));
+		action.setAttribute(readString(in, strings));
+		action.setAttributes(readMap(in, strings));
+		return action;
+	}
+
+	private static Map<String, String> readMap(DataInputStream in, String[] strings) throws IOException {
+		int size = in.readInt();
+		if (size == BinaryFormat.NONE)
+			return null;
+		Map<String, String> map = new HashMap<>();
+		for (int i = 0; i < size; i++)
+			map.put(readString(in, strings), readString(in, strings));
+		return map;
+	}
+
+	private static String readString(DataInputStream in, String[] strings) throws IOException {
+		int index = in.readInt();
+		return index == BinaryFormat.NONE ? null : strings[index];
+	}
+
+	/**
+	 * Reads a single layer object from the json.
+	 */
+	private static ParsedLayer streamLayer(JsonReader reader, Class<? extends IRenderer> renderer, boolean deferred)
+			throws IOException, CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer,
+			CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException {
+		ParsedLayer layer = new ParsedLayer(renderer, deferred);
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (name.equals("dataType")) {
+				layer.dataType = GSON.fromJson(reader, DataTypeModel.class);
+			} else if (name.equals("events") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+				reader.beginArray();
+				while (reader.hasNext())
+					streamEvent(reader, layer);
+				reader.endArray();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return layer;
+	}
+
+	/**
+	 * Reads an event object from the json and instantiates its actions into the
+	 * layer. The actions are instantiated as they are read, unless the name of
+	 * the event comes after them, in which case their models are kept until the
+	 * end of the event.
+	 */
+	private static void streamEvent(JsonReader reader, ParsedLayer layer)
+			throws IOException, CannotInstantiateJaoActionException, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException {
+		String eventName = null;
+		List<ActionModel> pending = new ArrayList<>();
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (name.equals("name") && reader.peek() == JsonToken.STRING) {
+				eventName = reader.nextString();
+				for (ActionModel action : pending)
+					layer.add(eventName, action);
+				pending.clear();
+			} else if (name.equals("actions") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+				reader.beginArray();
+				while (reader.hasNext()) {
+					ActionModel action = GSON.fromJson(reader, ActionModel.class);
+					if (eventName == null)
+						pending.add(action);
+					else
+						layer.add(eventName, action);
+				}
+				reader.endArray();
+			} else {
+				reader.skipValue();
+			}
 		}
-		return actions;
+		reader.endObject();
+
+		layer.endEvent(eventName);
+	}
+
+	/**
+	 * Runs the tasks in the executor and returns their results in the same order
+	 * as the tasks. As soon as a task fails, the tasks that have not started yet
+	 * are cancelled, and the exception thrown by the task that failed first is
+	 * unwrapped and thrown again.
+	 * 
+	 * @param tasks    The tasks to be run.
+	 * @param executor The executor to run the tasks, or null to run them one
+	 *                 after the other in the calling thread.
+	 * @return The results of the tasks.
+	 */
+	private static <T> List<T> runInOrder(List<Callable<T>> tasks, Executor executor)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		List<T> results = new ArrayList<>();
+		if (executor == null) {
+			for (Callable<T> task : tasks) {
+				try {
+					results.add(task.call());
+				} catch (Exception e) {
+					rethrow(e);
+				}
+			}
+			return results;
+		}
+
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<CompletableFuture<T>> futures = new ArrayList<>();
+		for (Callable<T> task : tasks) {
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				// Tasks that start after a failure are not needed anymore
+				if (failure.get() != null)
+					throw new CancellationException();
+				try {
+					return task.call();
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+					throw new CompletionException(e);
+				}
+			}, executor));
+		}
+
+		for (CompletableFuture<T> future : futures) {
+			try {
+				results.add(future.join());
+			} catch (CompletionException | CancellationException e) {
+				futures.forEach(other -> other.cancel(false));
+				rethrow(failure.get() != null ? failure.get() : e.getCause());
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Throws again an exception thrown by a parsing task.
+	 */
+	private static void rethrow(Throwable e)
+			throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, CannotFindJaoLibraryException,
+			CannotFindJaoInitializerException, CannotFindJaoActionException, ContentFileDoesNotExistException {
+		if (e instanceof CannotInstantiateJaoActionException)
+			throw (CannotInstantiateJaoActionException) e;
+		if (e instanceof CannotInstantiateJaoRenderer)
+			throw (CannotInstantiateJaoRenderer) e;
+		if (e instanceof CannotFindJaoLibraryException)
+			throw (CannotFindJaoLibraryException) e;
+		if (e instanceof CannotFindJaoInitializerException)
+			throw (CannotFindJaoInitializerException) e;
+		if (e instanceof CannotFindJaoActionException)
+			throw (CannotFindJaoActionException) e;
+		if (e instanceof ContentFileDoesNotExistException)
+			throw (ContentFileDoesNotExistException) e;
+		if (e instanceof RuntimeException)
+			throw (RuntimeException) e;
+		if (e instanceof Error)
+			throw (Error) e;
+		throw new CompletionException(e);
+	}
+
+	/**
+	 * Will instantiate the renderer class provided. That renderer must be able to
+	 * be instantiated using an argument-free constructor.
+	 * 
+	 * @param renderer A class corresponding to the renderer to be used.
+	 * @return An instance of the renderer provided.
+	 * @throws CannotInstantiateJaoRenderer
+	 */
+	private static IRenderer getRendererInstance(Class<? extends IRenderer> renderer)
+			throws CannotInstantiateJaoRenderer {
+		IRenderer rendererImpl = null;
+		for (Constructor<?> constructor : renderer.getConstructors()) {
+			if (constructor.getParameterCount() == 0) {
+				try {
+					rendererImpl = (IRenderer) constructor.newInstance();
+					break;
+				} catch (Exception e) {
+					throw new CannotInstantiateJaoRenderer(e);
+				}
+			}
+		}
+		if (rendererImpl == null) {
+			throw new CannotInstantiateJaoRenderer(new RuntimeException(String
+					.format("No argument-free constructor was found for renderer %s.", renderer.getClass().getName())));
+		}
+
+		return rendererImpl;
 	}
 
 	/**
@@ -317,31 +757,179 @@ public class JaoParser {
 	}
 
 	/**
-	 * Return an instance of EventAction, initialized with the implementation of the
-	 * action to be executed and fed with the data model.
+	 * Will find the action implementation in the factory that is going to be used
+	 * by this action and feed the model to it so that it initializes the data.
 	 * 
-	 * @param jaoLayer The current animation layer.
-	 * @param action   The action model data extracted from the JSON.
-	 * @return An instance of EventAction.
-	 * @throws CannotInstantiateJaoActionException In case the Action cannot be
-	 *                                             instantiated.
-	 * @throws CannotFindJaoInitializerException
+	 * @param action The action model data extracted from the JSON.
+	 * @return An instance of IAction loaded with the model.
+	 * @throws CannotInstantiateJaoActionException
 	 * @throws CannotFindJaoLibraryException
 	 * @throws CannotFindJaoActionException
 	 */
-	private static EventAction parseAction(JaoLayer jaoLayer, ActionModel action)
+	private static IAction parseActionImpl(ActionModel action)
 			throws CannotInstantiateJaoActionException, CannotFindJaoLibraryException, CannotFindJaoActionException {
-
-		// Find the action implementation in the factory that is going to be
-		// used by this action. Also feed the model so that it initializes the
-		// data.
 		IAction actionImpl = ActionFactory.getAction(action.getLibrary(), action.getName());
 		actionImpl.loadModel(action);
+		return actionImpl;
+	}
+
+	/**
+	 * The contents of a layer read from the json stream or from a binary
+	 * timeline. The renderer, initializers and actions are instantiated while
+	 * the layer is read, and are bound to a JaoLayer or a LayerTemplate once the
+	 * whole layer is known, since the data type may come after the events.
+	 * 
+	 * When the layer is deferred, only the models are kept while it is read, and
+	 * everything is instantiated when the layer is bound, which may happen in
+	 * another thread.
+	 */
+	private static final class ParsedLayer {
+
+		private final Class<? extends IRenderer> rendererClass;
+		private final boolean deferred;
+		private IRenderer renderer;
+		private DataTypeModel dataType;
+		private final InitializerEvent initializers;
+		private boolean initializersRead;
+		private final Map<String, List<IAction>> actions;
+		private final Map<String, List<Long>> when;
+
+		// Models of a deferred layer, by event
+		private final List<ActionModel> initializerModels;
+		private final Map<String, List<ActionModel>> actionModels;
+
+		// Actions of the event being read
+		private List<IAction> eventActions;
+		private List<ActionModel> eventModels;
+		private List<Long> eventWhen;
 
-		// Parse the when expression and get the actual when value in long
-		Long when = TimeExpressionParser.parseExpression(action.getWhen());
+		private ParsedLayer(Class<? extends IRenderer> renderer, boolean deferred) throws CannotInstantiateJaoRenderer {
+			this.rendererClass = renderer;
+			this.deferred = deferred;
+			this.renderer = deferred ? null : getRendererInstance(renderer);
+			initializers = new InitializerEvent();
+			initializersRead = false;
+			actions = new HashMap<>();
+			when = new HashMap<>();
+			initializerModels = new ArrayList<>();
+			actionModels = new HashMap<>();
+			eventActions = new ArrayList<>();
+			eventModels = new ArrayList<>();
+			eventWhen = new ArrayList<>();
+		}
+
+		/**
+		 * Instantiates an action of the event being read. Only the first
+		 * "initialize" event is used, the same as in the model based parser.
+		 */
+		private void add(String eventName, ActionModel action) throws CannotInstantiateJaoActionException,
+				CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException {
+			if (eventName.equalsIgnoreCase("initialize")) {
+				if (!initializersRead)
+					addInitializer(action);
+				return;
+			}
+			addAction(action, TimeExpressionParser.parseExpression(action.getWhen()));
+		}
+
+		private void addInitializer(ActionModel action) throws CannotInstantiateJaoActionException,
+				CannotFindJaoLibraryException, CannotFindJaoInitializerException {
+			if (deferred)
+				initializerModels.add(action);
+			else
+				initializers.add(parseInitializer(action));
+		}
+
+		private void addAction(ActionModel action, long when) throws CannotInstantiateJaoActionException,
+				CannotFindJaoLibraryException, CannotFindJaoActionException {
+			if (deferred)
+				eventModels.add(action);
+			else
+				eventActions.add(parseActionImpl(action));
+			eventWhen.add(when);
+		}
 
-		return new EventAction(jaoLayer, actionImpl, when);
+		private void endEvent(String eventName) {
+			if (eventName == null)
+				throw new JsonSyntaxException("Found an event without a name.");
+
+			if (eventName.equalsIgnoreCase("initialize")) {
+				initializersRead = true;
+				return;
+			}
+			if (deferred) {
+				actionModels.put(eventName, eventModels);
+				eventModels = new ArrayList<>();
+			} else {
+				actions.put(eventName, eventActions);
+				eventActions = new ArrayList<>();
+			}
+			when.put(eventName, eventWhen);
+			eventWhen = new ArrayList<>();
+		}
+
+		/**
+		 * Instantiates the renderer, initializers and actions of a deferred
+		 * layer. The models are dropped once they are loaded.
+		 */
+		private void instantiate() throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer,
+				CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException {
+			if (!deferred || renderer != null)
+				return;
+
+			renderer = getRendererInstance(rendererClass);
+			for (ActionModel action : initializerModels)
+				initializers.add(parseInitializer(action));
+			initializerModels.clear();
+
+			for (Map.Entry<String, List<ActionModel>> entry : actionModels.entrySet()) {
+				List<IAction> instances = new ArrayList<>();
+				for (ActionModel action : entry.getValue())
+					instances.add(parseActionImpl(action));
+				actions.put(entry.getKey(), instances);
+			}
+			actionModels.clear();
+		}
+
+		private JaoLayer toLayer(Jao jao) throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer,
+				CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
+				ContentFileDoesNotExistException {
+			instantiate();
+			renderer.setDataType(dataType, jao.getExtractor());
+
+			JaoLayer layer = new JaoLayer(jao, renderer);
+			layer.setDataType(dataType);
+			layer.addInitializers(initializers);
+
+			Map<String, Event> events = new HashMap<>();
+			for (Map.Entry<String, List<IAction>> entry : actions.entrySet()) {
+				List<Long> eventWhen = when.get(entry.getKey());
+				List<EventAction> eventActions = new ArrayList<>();
+				for (int i = 0; i < entry.getValue().size(); i++)
+					eventActions.add(new EventAction(layer, entry.getValue().get(i), eventWhen.get(i)));
+
+				Event event = new Event();
+				event.addActions(eventActions);
+				events.put(entry.getKey(), event);
+			}
+			layer.addEvents(events);
+
+			return layer;
+		}
+
+		private LayerTemplate toTemplate(IExtractor extractor) throws CannotInstantiateJaoActionException,
+				CannotInstantiateJaoRenderer, CannotFindJaoLibraryException, CannotFindJaoInitializerException,
+				CannotFindJaoActionException, ContentFileDoesNotExistException {
+			instantiate();
+			renderer.setDataType(dataType, extractor);
+
+			Map<String, EventTemplate> events = new HashMap<>();
+			for (Map.Entry<String, List<IAction>> entry : actions.entrySet())
+				events.put(entry.getKey(), new EventTemplate(entry.getValue(), when.get(entry.getKey())));
+
+			return new LayerTemplate(dataType, renderer, initializers, events);
+		}
 
 	}
+
 }
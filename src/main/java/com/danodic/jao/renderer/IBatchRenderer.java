@@ -0,0 +1,25 @@
+package com.danodic.jao.renderer;
+
+/**
+ * A renderer that draws many layers at once. Where IRenderer is called once for
+ * each layer of each Jao instance, an IBatchRenderer is called once for each
+ * group of layers that share the same data type (and so the same asset), no
+ * matter how many Jao instances they come from. That allows the implementation
+ * to issue a single instanced draw per asset.
+ *
+ * The batch renderer is used through JaoBatch, which collects the layers,
+ * lays their parameters out in contiguous arrays and calls render() for each
+ * group.
+ */
+public interface IBatchRenderer {
+
+    /**
+     * Draws all layers in a batch.
+     *
+     * @param batch The layers sharing the same data type, along with their
+     * parameters.
+     * @param args The arguments passed to JaoBatch.render().
+     */
+    public void render(RenderBatch batch, Object... args);
+
+}
@@ -0,0 +1,211 @@
+package com.danodic.jao.renderer;
+
+import com.danodic.jao.core.JaoLayer;
+import com.danodic.jao.core.LayerParameters;
+import com.danodic.jao.model.DataTypeModel;
+import java.util.Arrays;
+
+/**
+ * A group of layers that share the same data type, handed to an IBatchRenderer
+ * in a single call. The slot values of each layer are copied into contiguous
+ * primitive arrays, one row per layer, so that they can be uploaded as they
+ * are (as instance attributes, for example).
+ *
+ * The value of a slot for a given layer is found at
+ * {@code getFloats()[layer * getSlotCount() + slot]}, and the same goes for the
+ * other arrays. The slot layout is taken from the first layer in the batch and
+ * the other layers are mapped into it by parameter name, so layers created from
+ * the same template are copied straight through. Slots are resolved with
+ * getSlot().
+ *
+ * A batch is reused from frame to frame, so its arrays only grow when more
+ * layers are added than in any previous frame.
+ */
+public class RenderBatch {
+
+    private static final int INITIAL_LAYERS = 16;
+
+    private final DataTypeModel dataType;
+
+    private JaoLayer[] layers;
+    private int layerCount;
+
+    private String[] slotNames;
+    private int slotCount;
+
+    private float[] floats;
+    private int[] ints;
+    private long[] longs;
+    private boolean[] booleans;
+
+    public RenderBatch(DataTypeModel dataType) {
+        this.dataType = dataType;
+        layers = new JaoLayer[INITIAL_LAYERS];
+        layerCount = 0;
+        slotNames = new String[0];
+        slotCount = 0;
+        floats = new float[0];
+        ints = new int[0];
+        longs = new long[0];
+        booleans = new boolean[0];
+    }
+
+    /**
+     * Removes all layers from the batch, keeping the arrays to be reused.
+     */
+    public void clear() {
+        Arrays.fill(layers, 0, layerCount, null);
+        layerCount = 0;
+    }
+
+    /**
+     * Adds a layer to the batch and copies its slot values into the arrays.
+     *
+     * @param layer The layer to be added. It must have the same data type as
+     * the batch.
+     */
+    public void add(JaoLayer layer) {
+        LayerParameters parameters = layer.getRenderParameters();
+
+        if (layerCount == 0) {
+            updateLayout(parameters);
+        }
+
+        if (layerCount == layers.length) {
+            layers = Arrays.copyOf(layers, layerCount * 2);
+        }
+        ensureCapacity((layerCount + 1) * slotCount);
+
+        boolean sameLayout = hasLayout(parameters);
+        int row = layerCount * slotCount;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int source = sameLayout ? slot : parameters.getSlot(slotNames[slot]);
+            if (source < 0) {
+                floats[row + slot] = 0f;
+                ints[row + slot] = 0;
+                longs[row + slot] = 0L;
+                booleans[row + slot] = false;
+            } else {
+                floats[row + slot] = parameters.getFloat(source);
+                ints[row + slot] = parameters.getInt(source);
+                longs[row + slot] = parameters.getLong(source);
+                booleans[row + slot] = parameters.getBoolean(source);
+            }
+        }
+
+        layers[layerCount++] = layer;
+    }
+
+    /**
+     * Takes the slot layout of the first layer added in a frame. The names are
+     * only copied again in case the layout has changed.
+     */
+    private void updateLayout(LayerParameters parameters) {
+        if (hasLayout(parameters) && parameters.getSlotCount() == slotCount) {
+            return;
+        }
+        slotCount = parameters.getSlotCount();
+        slotNames = new String[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            slotNames[slot] = parameters.getSlotName(slot);
+        }
+    }
+
+    /**
+     * Tells if the slots of the given parameters are laid out the same way as
+     * the slots of this batch.
+     */
+    private boolean hasLayout(LayerParameters parameters) {
+        if (parameters.getSlotCount() < slotCount) {
+            return false;
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!slotNames[slot].equals(parameters.getSlotName(slot))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= floats.length) {
+            return;
+        }
+        int capacity = Math.max(size, floats.length * 2);
+        floats = Arrays.copyOf(floats, capacity);
+        ints = Arrays.copyOf(ints, capacity);
+        longs = Arrays.copyOf(longs, capacity);
+        booleans = Arrays.copyOf(booleans, capacity);
+    }
+
+    /**
+     * Returns the data type shared by all layers in this batch.
+     *
+     * @return An instance of DataTypeModel.
+     */
+    public DataTypeModel getDataType() {
+        return dataType;
+    }
+
+    /**
+     * Returns how many layers are in this batch.
+     *
+     * @return The amount of layers.
+     */
+    public int getLayerCount() {
+        return layerCount;
+    }
+
+    /**
+     * Returns one of the layers in this batch, in the order they were added.
+     *
+     * @param index Index of the layer, from 0 to getLayerCount() - 1.
+     * @return An instance of JaoLayer.
+     */
+    public JaoLayer getLayer(int index) {
+        return layers[index];
+    }
+
+    /**
+     * Returns how many slots each layer has in the arrays. It is the length of
+     * each row.
+     *
+     * @return The amount of slots per layer.
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Returns the column of a parameter in the arrays.
+     *
+     * @param name Name of the parameter.
+     * @return The slot of the parameter, or -1 in case no layer in the batch
+     * has it bound.
+     */
+    public int getSlot(String name) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slotNames[slot].equals(name)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public float[] getFloats() {
+        return floats;
+    }
+
+    public int[] getInts() {
+        return ints;
+    }
+
+    public long[] getLongs() {
+        return longs;
+    }
+
+    public boolean[] getBooleans() {
+        return booleans;
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.danodic.jao.time;
+
+/**
+ * A clock shared by many Jao instances. The host calls tick() once per frame,
+ * which is the only place the system time is read, and each instance gets its
+ * own IClock from newClock(). Those clocks only subtract the time the instance
+ * was started from the time of the current frame, so reading them is cheap and
+ * all instances see the same timestamp within a frame.
+ *
+ * Cloning one of the instance clocks (what happens when a Jao instance is
+ * cloned) gives another clock bound to the same FrameClock.
+ *
+ * tick() must happen before the instances are rendered, either from the same
+ * thread or from a thread that hands the frame over to the render thread.
+ */
+public class FrameClock {
+
+    private final long originNanos;
+    private final long originMillis;
+    private long frameNanos;
+    private long frameDeltaNanos;
+
+    public FrameClock() {
+        originNanos = System.nanoTime();
+        originMillis = System.currentTimeMillis();
+        frameNanos = originNanos;
+        frameDeltaNanos = 0L;
+    }
+
+    /**
+     * Starts a new frame, reading the time from System.nanoTime().
+     */
+    public void tick() {
+        tick(System.nanoTime());
+    }
+
+    /**
+     * Starts a new frame at the given time. Allows the host to provide its own
+     * frame time, such as the vsync timestamp.
+     *
+     * @param nanos The time of the frame, in the same scale as
+     * System.nanoTime().
+     */
+    public void tick(long nanos) {
+        frameDeltaNanos = nanos - frameNanos;
+        frameNanos = nanos;
+    }
+
+    /**
+     * Returns the time of the current frame.
+     *
+     * @return The time of the last tick, in the same scale as
+     * System.nanoTime().
+     */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    /**
+     * Returns the time between the last two ticks.
+     *
+     * @return The interval between the last two frames in nanoseconds.
+     */
+    public long getFrameDeltaNanos() {
+        return frameDeltaNanos;
+    }
+
+    /**
+     * Creates a clock for a single Jao instance. The clock starts counting from
+     * the first frame it is read.
+     *
+     * @return An instance of IClock bound to this frame clock.
+     */
+    public IClock newClock() {
+        return new InstanceClock(this);
+    }
+
+    /**
+     * The clock used by each Jao instance. It only keeps the frame it has
+     * been started at.
+     */
+    private static final class InstanceClock implements IClock {
+
+        private final FrameClock frameClock;
+        private boolean started;
+        private long startNanos;
+
+        InstanceClock(FrameClock frameClock) {
+            this.frameClock = frameClock;
+            this.started = false;
+        }
+
+        @Override
+        public long now() {
+            return nowNanos() / NANOS_PER_MILLISECOND;
+        }
+
+        @Override
+        public long nowNanos() {
+            if (!started) {
+                reset();
+            }
+            return frameClock.frameNanos - startNanos;
+        }
+
+        @Override
+        public void reset() {
+            started = true;
+            startNanos = frameClock.frameNanos;
+        }
+
+        @Override
+        public long getLastFrameTime() {
+            return frameClock.originMillis
+                    + (frameClock.frameNanos - frameClock.originNanos) / NANOS_PER_MILLISECOND;
+        }
+
+        @Override
+        public long getLastFrameDelta() {
+            return frameClock.frameDeltaNanos / NANOS_PER_MILLISECOND;
+        }
+
+        @Override
+        public long getLastFrameDeltaNanos() {
+            return frameClock.frameDeltaNanos;
+        }
+
+        @Override
+        public IClock clone() {
+            InstanceClock clone = new InstanceClock(frameClock);
+            clone.started = started;
+            clone.startNanos = startNanos;
+            return clone;
+        }
+
+    }
+
+}
@@ -13,6 +13,8 @@ package com.danodic.jao.time;
  */
 public interface IClock {
 
+    public static final long NANOS_PER_MILLISECOND = 1_000_000L;
+
     /**
      * Returns the elapsed animation time.
      * 
@@ -39,6 +41,27 @@ public interface IClock {
      * @return The interval between the last two frames in milliseconds.
      */
     public long getLastFrameDelta();
-    
+
+    /**
+     * Returns the elapsed animation time in nanoseconds. Works like now(), so
+     * only one of them should be called per frame. Clocks that only have
+     * millisecond precision do not have to implement it.
+     *
+     * @return Current elapsed time in nanoseconds.
+     */
+    public default long nowNanos() {
+        return now() * NANOS_PER_MILLISECOND;
+    }
+
+    /**
+     * The time interval between the last two frames in nanoseconds.
+     *
+     * @return The interval between the last two frames in nanoseconds.
+     */
+    public default long getLastFrameDeltaNanos() {
+        return getLastFrameDelta() * NANOS_PER_MILLISECOND;
+    }
+
+
     public IClock clone();
 }
\ No newline at end of file
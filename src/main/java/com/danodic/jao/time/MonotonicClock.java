@@ -0,0 +1,80 @@
+package com.danodic.jao.time;
+
+/**
+ * A clock based on System.nanoTime(). Unlike the StandardClock, it never goes
+ * backwards when the system time is adjusted, it has sub-millisecond precision
+ * and reading it does not allocate.
+ *
+ * The absolute frame time returned by getLastFrameTime() is derived from the
+ * system time read when the clock was reset, so it is only as accurate as that
+ * reading.
+ */
+public class MonotonicClock implements IClock {
+
+    private boolean started;
+    private long startNanos;
+    private long startMillis;
+    private long lastFrameNanos;
+    private long lastFrameDeltaNanos;
+    private long currentNanos;
+
+    public MonotonicClock() {
+        started = false;
+    }
+
+    @Override
+    public long now() {
+        return nowNanos() / NANOS_PER_MILLISECOND;
+    }
+
+    @Override
+    public long nowNanos() {
+        if (!started) {
+            reset();
+        } else {
+            long frameNanos = System.nanoTime();
+            lastFrameDeltaNanos = frameNanos - lastFrameNanos;
+            lastFrameNanos = frameNanos;
+            currentNanos = frameNanos - startNanos;
+        }
+        return currentNanos;
+    }
+
+    @Override
+    public void reset() {
+        started = true;
+        startNanos = System.nanoTime();
+        startMillis = System.currentTimeMillis();
+        lastFrameNanos = startNanos;
+        lastFrameDeltaNanos = 0L;
+        currentNanos = 0L;
+    }
+
+    @Override
+    public long getLastFrameTime() {
+        return startMillis + (lastFrameNanos - startNanos) / NANOS_PER_MILLISECOND;
+    }
+
+    @Override
+    public long getLastFrameDelta() {
+        return lastFrameDeltaNanos / NANOS_PER_MILLISECOND;
+    }
+
+    @Override
+    public long getLastFrameDeltaNanos() {
+        return lastFrameDeltaNanos;
+    }
+
+    @Override
+    public IClock clone() {
+        MonotonicClock clone = new MonotonicClock();
+        clone.started = started;
+        clone.startNanos = startNanos;
+        clone.startMillis = startMillis;
+        clone.lastFrameNanos = lastFrameNanos;
+        clone.lastFrameDeltaNanos = lastFrameDeltaNanos;
+        clone.currentNanos = currentNanos;
+        return clone;
+    }
+
+}
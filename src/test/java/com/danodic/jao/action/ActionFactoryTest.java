@@ -1,12 +1,34 @@
 package com.danodic.jao.action;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.danodic.jao.exceptions.CannotFindJaoActionException;
 import com.danodic.jao.exceptions.CannotFindJaoInitializerException;
 import com.danodic.jao.exceptions.CannotFindJaoLibraryException;
 import com.danodic.jao.exceptions.CannotInstantiateJaoActionException;
 import com.danodic.jao.model.ActionModel;
+import com.danodic.jao.support.Defaults;
+import com.danodic.jao.support.Sources;
+import com.danodic.jao.support.libraries.ProvidedLibrary;
+import com.danodic.jao.support.libraries.actions.GenericAction;
+import com.danodic.jao.support.libraries.actions.PulseOverTimeAction;
+import com.danodic.jao.support.libraries.initializers.OpacityInitializer;
 
 import org.testng.annotations.Test;
 
@@ -76,4 +98,213 @@ public class ActionFactoryTest {
             CannotInstantiateJaoActionException, CannotFindJaoActionException {
         ActionFactory.getAction("jao.unittest", "BadAction");
     }
-}
\ No newline at end of file
+
+    /**
+     * The index of the test libraries must be generated by the ActionProcessor
+     * when the tests are compiled.
+     */
+    @Test
+    public void testActionIndex() throws IOException {
+        List<String> entries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getClassLoader().getResourceAsStream(ActionIndex.RESOURCE), StandardCharsets.UTF_8))) {
+            reader.lines().forEach(entries::add);
+        }
+
+        assert entries.contains(String.join(ActionIndex.SEPARATOR, ActionIndex.ACTION, LIBRARY_NAME,
+                "PulseOverTime", PulseOverTimeAction.class.getName()));
+        assert entries.contains(String.join(ActionIndex.SEPARATOR, ActionIndex.INITIALIZER, LIBRARY_NAME,
+                "Opacity", OpacityInitializer.class.getName()));
+
+        // Classes without the annotation must be left out
+        for (String entry : entries) {
+            assert !entry.endsWith(GenericAction.class.getName());
+        }
+    }
+
+    /**
+     * Finding the index of the test classes must not hide a library built
+     * without the ActionProcessor when the scan is limited to it.
+     */
+    @Test(dependsOnMethods = "testInitializeFactory")
+    public void testLibraryWithoutIndex() throws CannotFindJaoLibraryException, CannotFindJaoActionException,
+            CannotFindJaoInitializerException, CannotInstantiateJaoActionException, IOException {
+        Path output = Files.createTempDirectory("jao-classes");
+        Sources.compile(output, false, "sample.Plain", Sources.initializer("Plain", "jao.plain", "Plain"));
+        assert !Files.exists(output.resolve(ActionIndex.RESOURCE));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { output.toUri().toURL() },
+                getClass().getClassLoader())) {
+            ActionFactory.setConfiguration(new ActionFactoryConfiguration().setClassLoader(loader));
+            ActionFactory.reinitializeFactory();
+
+            assert ActionFactory.getInitializer("jao.plain", "Plain").getClass().getName().equals("sample.Plain");
+            assert ActionFactory.getInitializer(LIBRARY_NAME, "Opacity") instanceof OpacityInitializer;
+        } finally {
+            ActionFactory.setConfiguration(new ActionFactoryConfiguration());
+            ActionFactory.reinitializeFactory();
+        }
+    }
+
+    /**
+     * Libraries published through the ServiceLoader must only be loaded when
+     * they are requested for the first time.
+     */
+    @Test(dependsOnMethods = "testInitializeFactory")
+    public void testProvidedLibrary() throws CannotFindJaoLibraryException, CannotFindJaoActionException,
+            CannotFindJaoInitializerException, CannotInstantiateJaoActionException {
+        assert ProvidedLibrary.getResolved() == 0;
+
+        assert ActionFactory.getAction(ProvidedLibrary.NAME, "Generic") instanceof GenericAction;
+        assert ProvidedLibrary.getResolved() == 1;
+
+        ActionFactory.getAction(ProvidedLibrary.NAME, "Generic");
+        ActionFactory.getInitializer(ProvidedLibrary.NAME, "Generic");
+        assert ProvidedLibrary.getResolved() == 1;
+    }
+
+    /**
+     * A library requested before the factory is initialized must still be
+     * loaded from the indexes once the factory is initialized.
+     */
+    @Test(dependsOnMethods = "testInitializeFactory")
+    public void testGetActionBeforeInitialization()
+            throws CannotFindJaoLibraryException, CannotFindJaoActionException, CannotInstantiateJaoActionException {
+        ActionFactory.resetFactory();
+        try {
+            ActionFactory.getAction(LIBRARY_NAME, "PulseOverTime");
+            assert false;
+        } catch (CannotFindJaoLibraryException e) {
+            // The indexes are only read when the factory is initialized
+        }
+
+        ActionFactory.initializeFactory();
+        assert ActionFactory.getAction(LIBRARY_NAME, "PulseOverTime") instanceof PulseOverTimeAction;
+    }
+
+    @Test(dependsOnMethods = "testInitializeFactory", expectedExceptions = Error.class)
+    public void testErrorInConstructor() throws CannotFindJaoLibraryException,
+            CannotInstantiateJaoActionException, CannotFindJaoActionException {
+        ActionFactory.getAction("jao.unittest", "ErrorAction");
+    }
+
+    /**
+     * Once enabled, every instantiation must be counted, along with the time
+     * it took.
+     */
+    @Test(dependsOnMethods = "testInitializeFactory")
+    public void testInstantiationStatistics()
+            throws CannotFindJaoLibraryException, CannotFindJaoActionException, CannotInstantiateJaoActionException {
+        assert !ActionFactory.isCollectStatistics();
+        long count = ActionFactory.getInstantiationCount();
+        ActionFactory.getAction(LIBRARY_NAME, "PulseOverTime");
+        assert ActionFactory.getInstantiationCount() == count;
+
+        ActionFactory.setCollectStatistics(true);
+        try {
+            long nanos = ActionFactory.getInstantiationNanos();
+
+            IAction first = ActionFactory.getAction(LIBRARY_NAME, "PulseOverTime");
+            IAction second = ActionFactory.getAction(LIBRARY_NAME, "PulseOverTime");
+            assert first != second;
+            assert first instanceof PulseOverTimeAction;
+
+            assert ActionFactory.getInstantiationCount() >= count + 2;
+            assert ActionFactory.getInstantiationNanos() > nanos;
+        } finally {
+            ActionFactory.setCollectStatistics(false);
+        }
+    }
+
+    /**
+     * Many threads must be able to initialize the factory and instantiate
+     * actions at the same time, and both the initialization and the loading of
+     * each library must only happen once.
+     */
+    @Test(dependsOnMethods = "testProvidedLibrary")
+    public void testConcurrentAccess() throws InterruptedException, ExecutionException {
+        ActionFactory.resetFactory();
+        int initializations = ActionFactory.getInitializationCount();
+        int resolved = ProvidedLibrary.getResolved();
+
+        int threads = 8;
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<IAction>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String library = i % 2 == 0 ? LIBRARY_NAME : ProvidedLibrary.NAME;
+                String action = i % 2 == 0 ? "PulseOverTime" : "Generic";
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    ActionFactory.initializeFactory();
+                    return ActionFactory.getAction(library, action);
+                }));
+            }
+
+            // Release the first tasks of every thread at once
+            ready.await();
+            start.countDown();
+
+            for (Future<IAction> future : futures) {
+                assert future.get() != null;
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assert ActionFactory.getInitializationCount() == initializations + 1;
+        assert ProvidedLibrary.getResolved() == resolved + 1;
+    }
+
+    /**
+     * A scan limited to a package must only find the classes in that package,
+     * a scan limited to a class loader must not find the classes of its
+     * parents, and the factory must go back to normal once it is reinitialized
+     * with the default configuration.
+     */
+    @Test(dependsOnMethods = "testInitializeFactory")
+    public void testScopedScan() throws CannotFindJaoLibraryException, CannotFindJaoActionException,
+            CannotFindJaoInitializerException, CannotInstantiateJaoActionException, IOException {
+        ActionFactoryConfiguration configuration = new ActionFactoryConfiguration()
+                .addPackage(PulseOverTimeAction.class.getPackage().getName())
+                .setUseIndex(false);
+
+        URL testClasses = PulseOverTimeAction.class.getProtectionDomain().getCodeSource().getLocation();
+        URL noClasses = Paths.get(Defaults.SAMPLE_FOLDER).toUri().toURL();
+
+        try (URLClassLoader parent = new URLClassLoader(new URL[] { testClasses }, getClass().getClassLoader());
+                URLClassLoader child = new URLClassLoader(new URL[] { noClasses }, parent)) {
+            ActionFactory.setConfiguration(configuration);
+            ActionFactory.reinitializeFactory();
+            assert ActionFactory.getConfiguration() == configuration;
+
+            assert ActionFactory.getAction(LIBRARY_NAME, "PulseOverTime") instanceof PulseOverTimeAction;
+            try {
+                ActionFactory.getInitializer(LIBRARY_NAME, "Opacity");
+                assert false;
+            } catch (CannotFindJaoLibraryException e) {
+                // The initializers are in another package
+            }
+
+            ActionFactory.setConfiguration(new ActionFactoryConfiguration().setClassLoader(parent).setUseIndex(false));
+            ActionFactory.reinitializeFactory();
+            assert ActionFactory.getAction(LIBRARY_NAME, "PulseOverTime") instanceof PulseOverTimeAction;
+
+            ActionFactory.setConfiguration(new ActionFactoryConfiguration().setClassLoader(child).setUseIndex(false));
+            ActionFactory.reinitializeFactory();
+            try {
+                ActionFactory.getAction(LIBRARY_NAME, "PulseOverTime");
+                assert false;
+            } catch (CannotFindJaoLibraryException e) {
+                // The test classes are only in the parent of the class loader
+            }
+        } finally {
+            ActionFactory.setConfiguration(new ActionFactoryConfiguration());
+            ActionFactory.reinitializeFactory();
+        }
+
+        assert ActionFactory.getInitializer(LIBRARY_NAME, "Opacity") instanceof OpacityInitializer;
+    }
+}
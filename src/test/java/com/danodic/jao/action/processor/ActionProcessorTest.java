@@ -0,0 +1,57 @@
+package com.danodic.jao.action.processor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.danodic.jao.action.ActionIndex;
+import com.danodic.jao.support.Sources;
+
+import org.testng.annotations.Test;
+
+public class ActionProcessorTest {
+
+    private static final String LIBRARY_NAME = "jao.compiled";
+
+    private static String initializer(String className, String name) {
+        return Sources.initializer(className, LIBRARY_NAME, name);
+    }
+
+    private static String entry(String name, String className) {
+        return String.join(ActionIndex.SEPARATOR, ActionIndex.INITIALIZER, LIBRARY_NAME, name, "sample." + className);
+    }
+
+    /**
+     * An incremental build only compiles some of the classes, so the entries
+     * of the others must be kept, except for the classes that were removed.
+     */
+    @Test
+    public void testIncrementalBuild() throws IOException {
+        Path output = Files.createTempDirectory("jao-classes");
+        Path index = output.resolve(ActionIndex.RESOURCE);
+
+        Sources.compile(output, true, "sample.First", initializer("First", "First"));
+        Sources.compile(output, true, "sample.Second", initializer("Second", "Second"));
+        List<String> entries = Files.readAllLines(index, StandardCharsets.UTF_8);
+        assert entries.size() == 2;
+        assert entries.contains(entry("First", "First"));
+        assert entries.contains(entry("Second", "Second"));
+
+        // A class compiled again replaces its own entries
+        Sources.compile(output, true, "sample.First", initializer("First", "Renamed"));
+        entries = Files.readAllLines(index, StandardCharsets.UTF_8);
+        assert entries.size() == 2;
+        assert entries.contains(entry("Renamed", "First"));
+        assert entries.contains(entry("Second", "Second"));
+
+        // Classes that do not exist anymore are dropped
+        Files.delete(output.resolve("sample/Second.class"));
+        Sources.compile(output, true, "sample.First", initializer("First", "First"));
+        entries = Files.readAllLines(index, StandardCharsets.UTF_8);
+        assert entries.size() == 1;
+        assert entries.contains(entry("First", "First"));
+    }
+
+}
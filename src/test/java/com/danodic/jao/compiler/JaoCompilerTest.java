@@ -0,0 +1,168 @@
+package com.danodic.jao.compiler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.danodic.jao.core.Jao;
+import com.danodic.jao.core.JaoBuilder;
+import com.danodic.jao.core.JaoTemplate;
+import com.danodic.jao.core.LayerTemplate;
+import com.danodic.jao.event.EventTemplate;
+import com.danodic.jao.exceptions.CannotFindJaoActionException;
+import com.danodic.jao.exceptions.CannotFindJaoInitializerException;
+import com.danodic.jao.exceptions.CannotFindJaoLibraryException;
+import com.danodic.jao.exceptions.CannotInstantiateJaoActionException;
+import com.danodic.jao.exceptions.CannotInstantiateJaoRenderer;
+import com.danodic.jao.exceptions.CannotLoadJaoFileContentException;
+import com.danodic.jao.exceptions.CannotLoadJaoFileException;
+import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
+import com.danodic.jao.exceptions.UnknownJaoFileFormatExcepton;
+import com.danodic.jao.extractor.ExtractorFactory;
+import com.danodic.jao.extractor.IExtractor;
+import com.danodic.jao.parser.BinaryFormat;
+import com.danodic.jao.parser.JaoParser;
+import com.danodic.jao.support.Defaults;
+import com.danodic.jao.support.renderers.TestRenderer;
+
+import org.testng.annotations.Test;
+
+public class JaoCompilerTest {
+
+    private static String readSample() throws IOException {
+        return new String(Files.readAllBytes(Paths.get(Defaults.SAMPLE_JSON)));
+    }
+
+    private static Path copyToTemp(Path source) throws IOException {
+        Path target = Files.createTempDirectory("jao").resolve(source.getFileName());
+        try (Stream<Path> files = Files.walk(source)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.copy(file, target.resolve(source.relativize(file).toString()),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return target;
+    }
+
+    private static void delete(Path path) throws IOException {
+        try (Stream<Path> files = Files.walk(path.getParent())) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * The template loaded from the binary must have the same layers, events and
+     * start times as the one parsed from the json.
+     */
+    @Test
+    public void testCompile() throws IOException, CannotFindJaoLibraryException, CannotFindJaoInitializerException,
+            CannotFindJaoActionException, CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer,
+            ContentFileDoesNotExistException {
+        String json = readSample();
+        byte[] binary = JaoCompiler.compile(json);
+        assert BinaryFormat.isCurrent(binary, json);
+
+        JaoTemplate expected = JaoParser.parseTemplate(json, null, TestRenderer.class);
+        JaoTemplate template = JaoParser.parseBinaryTemplate(binary, null, TestRenderer.class);
+
+        List<LayerTemplate> expectedLayers = expected.getLayers();
+        List<LayerTemplate> layers = template.getLayers();
+        assert layers.size() == expectedLayers.size();
+        for (int i = 0; i < layers.size(); i++) {
+            assert layers.get(i).getDataType().getType().equals(expectedLayers.get(i).getDataType().getType());
+            assert layers.get(i).getDataType().getAttributes()
+                    .equals(expectedLayers.get(i).getDataType().getAttributes());
+            assert layers.get(i).getInitializers().size() == expectedLayers.get(i).getInitializers().size();
+            assert layers.get(i).getEvents().keySet().equals(expectedLayers.get(i).getEvents().keySet());
+            for (String name : layers.get(i).getEvents().keySet()) {
+                EventTemplate event = layers.get(i).getEvents().get(name);
+                EventTemplate expectedEvent = expectedLayers.get(i).getEvents().get(name);
+                assert event.size() == expectedEvent.size();
+                for (int j = 0; j < event.size(); j++) {
+                    assert event.getWhen(j) == expectedEvent.getWhen(j);
+                }
+            }
+        }
+
+        Jao jao = JaoParser.parseBinary(binary, null, TestRenderer.class);
+        assert jao.getLayers().size() == expectedLayers.size();
+    }
+
+    /**
+     * A binary compiled from another json, or from another version of the
+     * format, must not be used.
+     */
+    @Test
+    public void testIsCurrent() throws IOException {
+        String json = readSample();
+        byte[] binary = JaoCompiler.compile(json);
+
+        assert BinaryFormat.isCurrent(binary, null);
+        assert !BinaryFormat.isCurrent(binary, json + " ");
+        assert !BinaryFormat.isCurrent(null, json);
+        assert !BinaryFormat.isCurrent(new byte[4], json);
+
+        binary[5] = (byte) (BinaryFormat.VERSION + 1);
+        assert !BinaryFormat.isCurrent(binary, null);
+    }
+
+    @Test
+    public void testCompileFolder() throws IOException, CannotLoadJaoFileException,
+            CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton, CannotFindJaoLibraryException,
+            CannotFindJaoInitializerException, CannotFindJaoActionException, CannotInstantiateJaoActionException,
+            CannotInstantiateJaoRenderer, ContentFileDoesNotExistException {
+        Path folder = copyToTemp(Paths.get(Defaults.SAMPLE_FOLDER));
+        try {
+            Path output = JaoCompiler.compile(folder, null);
+            assert output.equals(folder.resolve(BinaryFormat.FILENAME));
+
+            IExtractor extractor = ExtractorFactory.getExtractor(folder.toString());
+            assert BinaryFormat.isCurrent(extractor.getBinary(), extractor.getJson());
+
+            // The binary is enough to load the animation without the json
+            Files.delete(folder.resolve("jao.json"));
+            extractor = ExtractorFactory.getExtractor(folder.toString());
+            assert extractor.getJson() == null;
+            Jao jao = JaoBuilder.getJaoFromJson(extractor, TestRenderer.class);
+            assert jao.getLayers().size() == 1;
+        } finally {
+            delete(folder);
+        }
+    }
+
+    @Test
+    public void testCompileZip() throws IOException, CannotLoadJaoFileException, CannotLoadJaoFileContentException,
+            UnknownJaoFileFormatExcepton {
+        Path zip = copyToTemp(Paths.get(Defaults.SAMPLE_ZIP));
+        try {
+            JaoCompiler.compile(zip, null);
+
+            IExtractor extractor = ExtractorFactory.getExtractor(zip.toString());
+            assert extractor.getJson() != null;
+            assert BinaryFormat.isCurrent(extractor.getBinary(), extractor.getJson());
+        } finally {
+            delete(zip);
+        }
+    }
+
+    @Test(expectedExceptions = ContentFileDoesNotExistException.class)
+    public void testBinaryIsNotData() throws IOException, CannotLoadJaoFileException,
+            CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton, ContentFileDoesNotExistException {
+        Path folder = copyToTemp(Paths.get(Defaults.SAMPLE_FOLDER));
+        try {
+            JaoCompiler.compile(folder, null);
+            ExtractorFactory.getExtractor(folder.toString()).getData(BinaryFormat.FILENAME);
+        } finally {
+            delete(folder);
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.danodic.jao.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.danodic.jao.exceptions.CannotFindJaoActionException;
+import com.danodic.jao.exceptions.CannotFindJaoInitializerException;
+import com.danodic.jao.exceptions.CannotFindJaoLibraryException;
+import com.danodic.jao.exceptions.CannotInstantiateJaoActionException;
+import com.danodic.jao.exceptions.CannotInstantiateJaoRenderer;
+import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
+import com.danodic.jao.parser.JaoParser;
+import com.danodic.jao.renderer.IBatchRenderer;
+import com.danodic.jao.renderer.RenderBatch;
+import com.danodic.jao.support.Defaults;
+import com.danodic.jao.support.renderers.TestRenderer;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class JaoBatchTest {
+
+    private JaoTemplate template;
+
+    /**
+     * Keeps a copy of what it has been asked to render.
+     */
+    private static class RecordingBatchRenderer implements IBatchRenderer {
+
+        int calls = 0;
+        int layers = 0;
+        float[] opacities;
+
+        @Override
+        public void render(RenderBatch batch, Object... args) {
+            calls++;
+            layers += batch.getLayerCount();
+            int slot = batch.getSlot("opacity");
+            opacities = new float[batch.getLayerCount()];
+            for (int i = 0; i < batch.getLayerCount(); i++) {
+                opacities[i] = batch.getFloats()[i * batch.getSlotCount() + slot];
+            }
+        }
+
+    }
+
+    private static Jao newInstance(JaoTemplate template) {
+        Jao jao = template.newInstance();
+        LayerParameters parameters = jao.getLayers().get(0).getParameters();
+        parameters.setFloat(parameters.floatSlot("opacity"), 1f);
+        return jao;
+    }
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException, CannotFindJaoLibraryException, CannotFindJaoInitializerException,
+            CannotFindJaoActionException, CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer,
+            ContentFileDoesNotExistException {
+        String json = new String(Files.readAllBytes(Paths.get(Defaults.SAMPLE_JSON)));
+        template = JaoParser.parseTemplate(json, null, TestRenderer.class);
+    }
+
+    /**
+     * Layers with the same data type must be rendered in a single call, with
+     * their parameters laid out one row per layer.
+     */
+    @Test
+    public void testRenderGroupsLayers() {
+        List<Jao> jaos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Jao jao = template.newInstance();
+            LayerParameters parameters = jao.getLayers().get(0).getParameters();
+            parameters.setFloat(parameters.floatSlot("opacity"), i);
+            jaos.add(jao);
+        }
+
+        RecordingBatchRenderer renderer = new RecordingBatchRenderer();
+        JaoBatch batch = new JaoBatch(renderer);
+        batch.render(jaos);
+
+        assert renderer.calls == 1;
+        assert renderer.layers == 3;
+        for (int i = 0; i < 3; i++) {
+            assert renderer.opacities[i] == i;
+        }
+
+        batch.render(jaos);
+        assert renderer.calls == 2;
+        assert renderer.layers == 6;
+    }
+
+    /**
+     * Layers are grouped by the instance of their data type, so changing its
+     * attributes must not split the batch, while a template parsed again gets
+     * its own batch.
+     */
+    @Test
+    public void testRenderGroupsByDataTypeInstance() throws IOException, CannotFindJaoLibraryException,
+            CannotFindJaoInitializerException, CannotFindJaoActionException, CannotInstantiateJaoActionException,
+            CannotInstantiateJaoRenderer, ContentFileDoesNotExistException {
+        List<Jao> jaos = new ArrayList<>();
+        jaos.add(newInstance(template));
+        jaos.add(newInstance(template));
+
+        RecordingBatchRenderer renderer = new RecordingBatchRenderer();
+        JaoBatch batch = new JaoBatch(renderer);
+        batch.render(jaos);
+        assert renderer.calls == 1;
+
+        template.getLayers().get(0).getDataType().getAttributes().put("changed", "true");
+        batch.render(jaos);
+        assert renderer.calls == 2;
+        assert renderer.layers == 4;
+
+        String json = new String(Files.readAllBytes(Paths.get(Defaults.SAMPLE_JSON)));
+        jaos.add(newInstance(JaoParser.parseTemplate(json, null, TestRenderer.class)));
+        batch.render(jaos);
+        assert renderer.calls == 4;
+        assert renderer.layers == 7;
+    }
+
+    /**
+     * Layers without an event must not be rendered.
+     */
+    @Test
+    public void testRenderSkipsLayersWithoutEvent() {
+        Jao jao = template.newInstance();
+        jao.setEvent("invalid_event");
+
+        List<Jao> jaos = new ArrayList<>();
+        jaos.add(jao);
+
+        RecordingBatchRenderer renderer = new RecordingBatchRenderer();
+        new JaoBatch(renderer).render(jaos);
+        assert renderer.calls == 0;
+    }
+
+}
@@ -518,4 +518,30 @@ public class JaoLayerTest {
         assert layer.getClock() == newClock;
     }
 
+    /**
+     * Renderers implementing IParameterBinder must be bound when the layer is
+     * created and bound again when the parameters are replaced.
+     */
+    @Test
+    public void testBindParameters() {
+        class BindingRenderer extends TestRenderer implements IParameterBinder {
+            int slot = -1;
+
+            @Override
+            public void bindParameters(LayerParameters parameters) {
+                slot = parameters.floatSlot("opacity");
+            }
+        }
+
+        BindingRenderer renderer = new BindingRenderer();
+        JaoLayer layer = new JaoLayer(jao, renderer);
+        assert renderer.slot >= 0;
+        assert layer.getParameters().getSlot("opacity") == renderer.slot;
+
+        LayerParameters parameters = new LayerParameters();
+        parameters.floatSlot("something_else");
+        layer.setParameters(parameters);
+        assert parameters.getSlot("opacity") == renderer.slot;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package com.danodic.jao.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import com.danodic.jao.action.IAction;
+import com.danodic.jao.event.Event;
+import com.danodic.jao.event.EventAction;
+import com.danodic.jao.event.EventTemplate;
+import com.danodic.jao.exceptions.CannotFindJaoActionException;
+import com.danodic.jao.exceptions.CannotFindJaoInitializerException;
+import com.danodic.jao.exceptions.CannotFindJaoLibraryException;
+import com.danodic.jao.exceptions.CannotInstantiateJaoActionException;
+import com.danodic.jao.exceptions.CannotInstantiateJaoRenderer;
+import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
+import com.danodic.jao.parser.JaoParser;
+import com.danodic.jao.support.Defaults;
+import com.danodic.jao.support.clocks.TimeLordClock;
+import com.danodic.jao.support.libraries.actions.GenericAction;
+import com.danodic.jao.support.renderers.TestRenderer;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class JaoTemplateTest {
+
+    private JaoTemplate template;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException, CannotFindJaoLibraryException, CannotFindJaoInitializerException,
+            CannotFindJaoActionException, CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer,
+            ContentFileDoesNotExistException {
+        String json = new String(Files.readAllBytes(Paths.get(Defaults.SAMPLE_JSON)));
+        template = JaoParser.parseTemplate(json, null, TestRenderer.class);
+    }
+
+    /**
+     * The template must have the same layers and events as the JSON file.
+     */
+    @Test
+    public void testParseTemplate() {
+        assert template.getLayers().size() == 1;
+
+        LayerTemplate layer = template.getLayers().get(0);
+        assert layer.getDataType().getType().equals("sprite");
+        assert layer.getInitializers().size() == 1;
+        assert layer.getEvents().containsKey("default");
+        assert layer.getEvents().containsKey("something_else");
+        assert !layer.getEvents().containsKey("initialize");
+    }
+
+    /**
+     * Every instance must have its own layers, events and actions, and the
+     * default event must be engaged.
+     */
+    @Test
+    public void testNewInstance() {
+        Jao first = template.newInstance();
+        Jao second = template.newInstance();
+
+        assert first.getTemplate() == template;
+        assert first.getLayers().size() == 1;
+        assert first.getLayers().get(0) != second.getLayers().get(0);
+        assert first.getLayers().get(0).getDataType() == template.getLayers().get(0).getDataType();
+
+        Event firstEvent = first.getLayers().get(0).getEvent();
+        Event secondEvent = second.getLayers().get(0).getEvent();
+        assert firstEvent != null;
+        assert firstEvent != secondEvent;
+
+        EventAction firstAction = firstEvent.getAllActionEvents().get(0);
+        EventAction secondAction = secondEvent.getAllActionEvents().get(0);
+        assert firstAction.getAction() != secondAction.getAction();
+    }
+
+    /**
+     * Running one instance must not change the state of another instance.
+     */
+    @Test
+    public void testInstancesAreIndependent() {
+        Jao first = template.newInstance();
+        Jao second = template.newInstance();
+
+        TimeLordClock firstClock = new TimeLordClock();
+        TimeLordClock secondClock = new TimeLordClock();
+        first.setClock(firstClock);
+        second.setClock(secondClock);
+
+        first.render();
+        firstClock.setTime(5000L);
+        first.render();
+        assert first.isDone();
+
+        assert !second.isDone();
+        second.render();
+        assert !second.isDone();
+    }
+
+    /**
+     * Events created from a template must only clone an action when it starts,
+     * and clone it again when it starts after a reset.
+     */
+    @Test
+    public void testActionsClonedOnStart() {
+        int[] clones = new int[1];
+        IAction prototype = new GenericAction() {
+            @Override
+            public IAction clone() {
+                clones[0]++;
+                return new GenericAction();
+            }
+        };
+        EventTemplate template = new EventTemplate(Arrays.asList(prototype, prototype), Arrays.asList(1000L, 0L));
+        Event event = template.newEvent(new JaoLayer(new Jao(), new TestRenderer()));
+        assert clones[0] == 0;
+
+        event.getRunningItems(0L);
+        assert clones[0] == 1;
+        assert event.getRunningCount() == 1;
+
+        ((GenericAction) event.getRunningItem(0).getAction()).setDone(true);
+        event.cleanDone();
+        event.getRunningItems(1000L);
+        assert clones[0] == 2;
+        assert event.getRunningItem(0).getWhen() == 1000L;
+
+        event.reset();
+        assert event.getRunningCount() == 0;
+        assert clones[0] == 2;
+        event.getRunningItems(0L);
+        assert clones[0] == 3;
+
+        // Listing the actions clones the ones that are not running
+        assert event.getAllActionEvents().size() == 2;
+        assert event.getAllActionEvents().get(0) == event.getRunningItem(0);
+        assert clones[0] == 4;
+    }
+
+    /**
+     * The event template must sort the actions by their start time.
+     */
+    @Test
+    public void testEventTemplateSorting() {
+        EventTemplate event = template.getLayers().get(0).getEvents().get("default");
+        for (int i = 1; i < event.size(); i++) {
+            assert event.getWhen(i - 1) <= event.getWhen(i);
+        }
+    }
+
+}
@@ -6,6 +6,7 @@ import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.danodic.jao.event.Event;
 import com.danodic.jao.event.EventAction;
@@ -19,8 +20,11 @@ import com.danodic.jao.parser.JaoParser;
 import com.danodic.jao.renderer.IRenderer;
 import com.danodic.jao.support.Defaults;
 import com.danodic.jao.support.clocks.TimeLordClock;
+import com.danodic.jao.support.libraries.actions.GenericAction;
 import com.danodic.jao.support.libraries.actions.PulseOverTimeAction;
 import com.danodic.jao.support.renderers.TestRenderer;
+import com.danodic.jao.time.IClock;
+import com.danodic.jao.time.MonotonicClock;
 import com.danodic.jao.time.StandardClock;
 
 import org.testng.annotations.BeforeMethod;
@@ -76,6 +80,18 @@ public class JaoTest {
         theTimeAndSpaceParadox.setTime(3000L);
         jao.render();
         assert jao.getElapsed() == 3000L;
+        assert jao.getElapsedNanos() == 3000L * IClock.NANOS_PER_MILLISECOND;
+    }
+
+    @Test
+    public void testGetElapsedNanos() throws InterruptedException {
+        jao.setClock(new MonotonicClock());
+        jao.render();
+        Thread.sleep(5);
+        jao.render();
+        assert jao.getElapsedNanos() >= 5L * IClock.NANOS_PER_MILLISECOND;
+        assert jao.getElapsed() == jao.getElapsedNanos() / IClock.NANOS_PER_MILLISECOND;
+        assert jao.getLastFrameDeltaNanos() == jao.getElapsedNanos();
     }
 
     @Test
@@ -227,4 +243,274 @@ public class JaoTest {
         }
             
     }
+
+    /**
+     * Creates an instance with a single layer that writes the elapsed time into
+     * the "frame" parameter, and whose renderer records what it has drawn.
+     */
+    private Jao createFrameJao(List<Long> rendered) {
+        Jao jao = new Jao();
+        JaoLayer layer = new JaoLayer(jao, new TestRenderer() {
+            @Override
+            public void render(JaoLayer layer, Object... args) {
+                rendered.add(layer.getRenderParameters().getAsLong("frame"));
+            }
+        });
+        Event event = new Event();
+        event.addAction(new EventAction(layer, new GenericAction() {
+            @Override
+            public void run(JaoLayer layer) {
+                LayerParameters parameters = layer.getParameters();
+                parameters.setLong(parameters.longSlot("frame"), layer.getElapsed());
+            }
+        }, 0L));
+        layer.addEvent("default", event);
+        jao.addLayer(layer);
+        return jao;
+    }
+
+    /**
+     * When decoupled, render() must only draw what has been published by
+     * update(), and must not run any actions.
+     */
+    @Test
+    public void testUpdateDecoupled() {
+        List<Long> rendered = new ArrayList<>();
+        Jao jao = createFrameJao(rendered);
+        jao.setDecoupled(true);
+        assert jao.isDecoupled();
+
+        jao.update(100L);
+        jao.render();
+        jao.render();
+        assert rendered.get(0) == 100L;
+        assert rendered.get(1) == 100L;
+
+        // Changes made after the last update must not be seen by the renderer
+        LayerParameters parameters = jao.getLayers().get(0).getParameters();
+        parameters.setLong(parameters.longSlot("frame"), 150L);
+        jao.render();
+        assert rendered.get(2) == 100L;
+
+        jao.update(200L);
+        jao.render();
+        assert rendered.get(3) == 200L;
+        assert jao.getLayers().get(0).getRenderParameters().get("frame").equals(200L);
+    }
+
+    /**
+     * When not decoupled, the renderer sees the live parameters.
+     */
+    @Test
+    public void testUpdateCoupled() {
+        List<Long> rendered = new ArrayList<>();
+        Jao jao = createFrameJao(rendered);
+        TimeLordClock clock = new TimeLordClock();
+        jao.setClock(clock);
+
+        clock.setTime(300L);
+        jao.render();
+        assert rendered.get(0) == 300L;
+
+        JaoLayer layer = jao.getLayers().get(0);
+        assert layer.getRenderParameters() == layer.getParameters();
+    }
+
+    /**
+     * Once update() is being called, render() must only draw, so the actions
+     * run once per frame even when not decoupled.
+     */
+    @Test
+    public void testUpdateThenRender() {
+        int[] runs = new int[1];
+        List<Float> rendered = new ArrayList<>();
+        Jao jao = createSteppedJao(runs, rendered);
+        TimeLordClock clock = new TimeLordClock();
+        jao.setClock(clock);
+
+        jao.render();
+        assert runs[0] == 1;
+
+        for (long time = 10L; time <= 30L; time += 10L) {
+            clock.setTime(time);
+            jao.update();
+            jao.render();
+        }
+        assert runs[0] == 4;
+        assert rendered.get(rendered.size() - 1) == 4F;
+    }
+
+    /**
+     * The render thread must always see complete snapshots, in the order they
+     * were published, while another thread keeps updating.
+     */
+    @Test
+    public void testUpdateFromAnotherThread() throws InterruptedException {
+        List<Long> rendered = new ArrayList<>();
+        Jao jao = createFrameJao(rendered);
+        jao.setDecoupled(true);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread updater = new Thread(() -> {
+            for (long frame = 1; frame <= 20000; frame++) {
+                jao.update(frame);
+            }
+            running.set(false);
+        });
+        updater.start();
+        while (running.get()) {
+            jao.render();
+        }
+        updater.join();
+        jao.render();
+
+        for (int i = 1; i < rendered.size(); i++) {
+            assert rendered.get(i - 1) <= rendered.get(i);
+        }
+        assert rendered.get(rendered.size() - 1) == 20000L;
+    }
+
+    /**
+     * Creates an instance with a single layer whose action counts how many
+     * times it ran and moves the "x" parameter by one per run, and whose
+     * renderer records the interpolated value of "x".
+     */
+    private Jao createSteppedJao(int[] runs, List<Float> rendered) {
+        Jao jao = new Jao();
+        JaoLayer layer = new JaoLayer(jao, new TestRenderer() {
+            @Override
+            public void render(JaoLayer layer, Object... args) {
+                rendered.add(layer.getRenderParameters().getAsFloat("x"));
+            }
+        });
+        Event event = new Event();
+        event.addAction(new EventAction(layer, new GenericAction() {
+            @Override
+            public void run(JaoLayer layer) {
+                runs[0]++;
+                LayerParameters parameters = layer.getParameters();
+                int slot = parameters.floatSlot("x");
+                parameters.setFloat(slot, parameters.getFloat(slot) + 1F);
+                parameters.put("y", (float) runs[0]);
+                parameters.put("z", (double) runs[0]);
+                parameters.put("count", runs[0]);
+            }
+        }, 0L));
+        layer.addEvent("default", event);
+        layer.getParameters().floatSlot("x");
+        jao.addLayer(layer);
+        return jao;
+    }
+
+    /**
+     * With a fixed update rate, the actions must run once per step no matter
+     * how often the instance is rendered, and the renderer must see the float
+     * parameters interpolated between the last two steps.
+     */
+    @Test
+    public void testFixedUpdateRate() {
+        int[] runs = new int[1];
+        List<Float> rendered = new ArrayList<>();
+        Jao jao = createSteppedJao(runs, rendered);
+        TimeLordClock clock = new TimeLordClock();
+        jao.setClock(clock);
+        jao.setUpdateRate(10);
+        assert jao.getUpdateRate() == 10;
+
+        // The first step runs right away
+        clock.setTime(0L);
+        jao.render();
+        assert runs[0] == 1;
+        assert rendered.get(0) == 0F;
+
+        // Rendering between steps does not run the actions again
+        clock.setTime(50L);
+        jao.render();
+        assert runs[0] == 1;
+        assert jao.getAlpha() == 0.5F;
+        assert rendered.get(1) == 0.5F;
+
+        clock.setTime(250L);
+        jao.render();
+        assert runs[0] == 3;
+        assert jao.getElapsed() == 200L;
+        assert rendered.get(2) == 2.5F;
+
+        // The live parameters are not touched by the interpolation
+        assert jao.getLayers().get(0).getParameters().getAsFloat("x") == 3F;
+    }
+
+    /**
+     * Values written by name must be interpolated as well, except for the
+     * integers, which keep the value of the last step.
+     */
+    @Test
+    public void testFixedUpdateRateByName() {
+        int[] runs = new int[1];
+        Jao jao = createSteppedJao(runs, new ArrayList<>());
+        jao.setUpdateRate(10);
+
+        jao.update(0L);
+        jao.update(100L);
+        jao.update(150L);
+        jao.render();
+
+        LayerParameters parameters = jao.getLayers().get(0).getRenderParameters();
+        assert parameters.getAsFloat("y") == 1.5F;
+        assert (Double) parameters.get("z") == 1.5D;
+        assert (Integer) parameters.get("count") == 2;
+    }
+
+    /**
+     * A decoupled instance with a fixed update rate must still interpolate,
+     * using the snapshots of the last two steps.
+     */
+    @Test
+    public void testFixedUpdateRateDecoupled() {
+        int[] runs = new int[1];
+        List<Float> rendered = new ArrayList<>();
+        Jao jao = createSteppedJao(runs, rendered);
+        jao.setUpdateRate(10);
+        jao.setDecoupled(true);
+
+        jao.update(0L);
+        jao.update(100L);
+        jao.update(150L);
+        jao.render();
+        assert runs[0] == 2;
+        assert rendered.get(rendered.size() - 1) == 1.5F;
+        assert jao.getLayers().get(0).getRenderParameters().getAsFloat("y") == 1.5F;
+
+        // The snapshot being rendered is not touched by the next steps
+        jao.update(250L);
+        assert rendered.get(rendered.size() - 1) == 1.5F;
+        jao.render();
+        assert rendered.get(rendered.size() - 1) == 2.5F;
+    }
+
+    /**
+     * When the updates fall too far behind, the steps left behind must be
+     * dropped.
+     */
+    @Test
+    public void testFixedUpdateRateDropsSteps() {
+        int[] runs = new int[1];
+        Jao jao = createSteppedJao(runs, new ArrayList<>());
+        jao.setUpdateRate(10);
+
+        jao.update(0L);
+        jao.update(100000L);
+        assert runs[0] < 20;
+
+        // It keeps stepping normally afterwards
+        int before = runs[0];
+        jao.update(100100L);
+        assert runs[0] == before + 1;
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidUpdateRate() {
+        jao.setUpdateRate(-1);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.danodic.jao.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import com.danodic.jao.event.Event;
+import com.danodic.jao.event.EventAction;
+import com.danodic.jao.exceptions.CannotFindJaoActionException;
+import com.danodic.jao.exceptions.CannotFindJaoInitializerException;
+import com.danodic.jao.exceptions.CannotFindJaoLibraryException;
+import com.danodic.jao.exceptions.CannotInstantiateJaoActionException;
+import com.danodic.jao.exceptions.CannotInstantiateJaoRenderer;
+import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
+import com.danodic.jao.parser.JaoParser;
+import com.danodic.jao.support.Defaults;
+import com.danodic.jao.support.clocks.TimeLordClock;
+import com.danodic.jao.support.libraries.actions.RunOnceAction;
+import com.danodic.jao.support.renderers.TestRenderer;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class JaoWorldTest {
+
+    private JaoTemplate template;
+    private TimeLordClock clock;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException, CannotFindJaoLibraryException, CannotFindJaoInitializerException,
+            CannotFindJaoActionException, CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer,
+            ContentFileDoesNotExistException {
+        String json = new String(Files.readAllBytes(Paths.get(Defaults.SAMPLE_JSON)));
+        template = JaoParser.parseTemplate(json, null, TestRenderer.class);
+        clock = new TimeLordClock();
+    }
+
+    private JaoWorld createWorld(int instances) {
+        JaoWorld world = new JaoWorld(new ForkJoinPool(4));
+        world.setChunkSize(8);
+        for (int i = 0; i < instances; i++) {
+            Jao jao = template.newInstance();
+            jao.setClock(clock);
+            world.add(jao);
+        }
+        return world;
+    }
+
+    /**
+     * All instances must be advanced by the world, no matter in which chunk
+     * they end up.
+     */
+    @Test
+    public void testRender() {
+        JaoWorld world = createWorld(100);
+
+        world.render();
+        for (Jao jao : world.getInstances()) {
+            assert !jao.isDone();
+        }
+
+        clock.setTime(5000L);
+        world.render();
+        for (Jao jao : world.getInstances()) {
+            assert jao.isDone();
+            assert jao.getElapsed() == 5000L;
+        }
+    }
+
+    /**
+     * The renderers must be called after the actions have run, on the caller
+     * thread.
+     */
+    @Test
+    public void testRenderOrder() {
+        Thread caller = Thread.currentThread();
+        JaoWorld world = new JaoWorld(new ForkJoinPool(2));
+        world.setChunkSize(1);
+
+        for (int i = 0; i < 10; i++) {
+            Jao jao = new Jao();
+            jao.setClock(clock);
+            RunOnceAction action = new RunOnceAction();
+            JaoLayer layer = new JaoLayer(jao, new TestRenderer() {
+                @Override
+                public void render(JaoLayer layer, Object... args) {
+                    assert Thread.currentThread() == caller;
+                    assert action.isDone();
+                }
+            });
+            Event event = new Event();
+            event.addAction(new EventAction(layer, action, 0L));
+            layer.addEvent("default", event);
+            jao.addLayer(layer);
+            world.add(jao);
+        }
+
+        world.render();
+        for (Jao jao : world.getInstances()) {
+            assert jao.isDone();
+        }
+    }
+
+    /**
+     * Instances that are done must be removed by removeDone().
+     */
+    @Test
+    public void testRemoveDone() {
+        JaoWorld world = createWorld(10);
+        clock.setTime(5000L);
+        world.render();
+        world.removeDone();
+        assert world.getInstances().isEmpty();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidChunkSize() {
+        new JaoWorld().setChunkSize(0);
+    }
+
+}
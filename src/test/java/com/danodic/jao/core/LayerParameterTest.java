@@ -1,5 +1,9 @@
 package com.danodic.jao.core;
 
+import com.danodic.jao.exceptions.InvalidJaoParameterTypeException;
+import java.util.Iterator;
+import java.util.Map;
+
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -90,4 +94,160 @@ public class LayerParameterTest {
         assert params.getAsBoolean("sample_param").equals(false);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSlotBinding() {
+        int slot = params.floatSlot("sample_param");
+        assert params.floatSlot("sample_param") == slot;
+        assert params.getSlot("sample_param") == slot;
+        assert params.getSlot("other_param") == -1;
+        assert params.getSlotName(slot).equals("sample_param");
+        assert params.isFloatSlot(slot);
+    }
+
+    @Test
+    public void testSlotTakesExistingValue() {
+        params.put("sample_param", 2F);
+        int slot = params.floatSlot("sample_param");
+        assert params.getFloat(slot) == 2F;
+    }
+
+    @Test
+    public void testSlotWriteVisibleByName() {
+        int floatSlot = params.floatSlot("float_param");
+        int intSlot = params.intSlot("int_param");
+        int longSlot = params.longSlot("long_param");
+        int booleanSlot = params.booleanSlot("boolean_param");
+
+        params.setFloat(floatSlot, 1.5F);
+        params.setInt(intSlot, 3);
+        params.setLong(longSlot, 4L);
+        params.setBoolean(booleanSlot, true);
+
+        assert params.getAsFloat("float_param").equals(1.5F);
+        assert params.getAsInteger("int_param").equals(3);
+        assert params.getAsLong("long_param").equals(4L);
+        assert params.getAsBoolean("boolean_param").equals(true);
+        assert params.get("float_param").equals(1.5F);
+        assert params.containsKey("int_param");
+        assert params.size() == 4;
+    }
+
+    @Test
+    public void testNameWriteVisibleBySlot() {
+        int slot = params.intSlot("sample_param");
+        params.put("sample_param", 5);
+        assert params.getInt(slot) == 5;
+
+        params.remove("sample_param");
+        assert params.getInt(slot) == 0;
+        assert !params.containsKey("sample_param");
+    }
+
+    @Test(expectedExceptions = InvalidJaoParameterTypeException.class)
+    public void testSlotTypeMismatch() {
+        params.floatSlot("sample_param");
+        params.intSlot("sample_param");
+    }
+
+    @Test
+    public void testCloneKeepsSlots() {
+        int slot = params.floatSlot("sample_param");
+        params.setFloat(slot, 3F);
+
+        LayerParameters clone = params.clone();
+        assert clone.getSlot("sample_param") == slot;
+        assert clone.getFloat(slot) == 3F;
+
+        clone.setFloat(slot, 4F);
+        assert params.getFloat(slot) == 3F;
+    }
+
+    @Test
+    public void testCopyTo() {
+        int slot = params.floatSlot("sample_param");
+        params.setFloat(slot, 3F);
+        params.put("other_param", "value");
+
+        LayerParameters copy = new LayerParameters();
+        params.copyTo(copy);
+        assert copy.getFloat(copy.getSlot("sample_param")) == 3F;
+        assert copy.get("sample_param").equals(3F);
+        assert copy.get("other_param").equals("value");
+
+        // Slot changes are copied again, the map is left alone
+        params.setFloat(slot, 4F);
+        params.copyTo(copy);
+        assert copy.get("sample_param").equals(4F);
+        assert copy.get("other_param").equals("value");
+
+        // Removed parameters must not come back
+        params.remove("sample_param");
+        params.remove("other_param");
+        params.copyTo(copy);
+        assert !copy.containsKey("sample_param");
+        assert !copy.containsKey("other_param");
+    }
+
+    /**
+     * All the ways a map can be changed must reach the slots, and the copies
+     * taken after them.
+     */
+    @Test
+    public void testMapViewsWriteSlots() {
+        int slot = params.intSlot("sample_param");
+        LayerParameters copy = new LayerParameters();
+
+        params.putIfAbsent("sample_param", 1);
+        params.merge("sample_param", 2, (a, b) -> (Integer) a + (Integer) b);
+        assert params.getInt(slot) == 3;
+        params.copyTo(copy);
+        assert copy.getAsInteger("sample_param") == 3;
+
+        params.compute("sample_param", (key, value) -> (Integer) value * 2);
+        params.replaceAll((key, value) -> (Integer) value + 1);
+        assert params.getInt(slot) == 7;
+        params.copyTo(copy);
+        assert copy.getAsInteger("sample_param") == 7;
+
+        for (Map.Entry<String, Object> entry : params.entrySet()) {
+            entry.setValue(8);
+        }
+        assert params.getInt(slot) == 8;
+        params.copyTo(copy);
+        assert copy.getAsInteger("sample_param") == 8;
+
+        params.put("other_param", "value");
+        params.keySet().remove("other_param");
+        Iterator<Object> values = params.values().iterator();
+        values.next();
+        values.remove();
+        assert params.isEmpty();
+        assert params.getInt(slot) == 0;
+        params.copyTo(copy);
+        assert copy.isEmpty();
+    }
+
+    /**
+     * Parameters written by name get a slot that follows the type of the value,
+     * until they are bound.
+     */
+    @Test
+    public void testSlotsForValuesWrittenByName() {
+        params.put("sample_param", 2F);
+        int slot = params.getSlot("sample_param");
+        assert slot >= 0;
+        assert params.isFloatSlot(slot);
+        assert params.getFloat(slot) == 2F;
+
+        params.put("sample_param", "text");
+        assert !params.isFloatSlot(slot);
+        assert params.get("sample_param").equals("text");
+
+        // Values of another type are kept as they are for the map
+        assert params.intSlot("sample_param") == slot;
+        params.put("sample_param", 3L);
+        assert params.getInt(slot) == 3;
+        assert params.get("sample_param").equals(3L);
+    }
+
+}
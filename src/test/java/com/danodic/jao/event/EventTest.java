@@ -120,6 +120,32 @@ public class EventTest {
 
     }
 
+    @Test
+    public void testGetRunningItemsOutOfOrder() {
+        Jao jao = new Jao();
+        JaoLayer layer = new JaoLayer(jao, new TestRenderer());
+        Event event = new Event();
+
+        EventAction eAction1 = getMockEventAction(layer, "second 2", "second 3");
+        event.addAction(eAction1);
+
+        EventAction eAction2 = getMockEventAction(layer, "second 0", "second 3");
+        event.addAction(eAction2);
+
+        assert event.getRunningItems(0L).contains(eAction2);
+        assert !event.getRunningItems(0L).contains(eAction1);
+
+        // Actions added after the event has started must still be scheduled
+        EventAction eAction3 = getMockEventAction(layer, "second 1", "second 3");
+        event.addAction(eAction3);
+
+        assert !event.getRunningItems(999L).contains(eAction3);
+        assert event.getRunningItems(1000L).contains(eAction3);
+        assert !event.getRunningItems(1000L).contains(eAction1);
+        assert event.getRunningItems(2000L).contains(eAction1);
+        assert event.getRunningItems(2000L).size() == 3;
+    }
+
     @Test
     public void testCleanDone() {
         Jao jao = new Jao();
@@ -142,6 +168,31 @@ public class EventTest {
         assert !event.getRunningItems(tardis.now()).contains(eAction);
     }
 
+    @Test
+    public void testCleanDoneKeepsOrder() {
+        Jao jao = new Jao();
+        JaoLayer layer = new JaoLayer(jao, new TestRenderer());
+        Event event = new Event();
+
+        EventAction eAction1 = getMockEventAction(layer, "second 0", "second 3");
+        EventAction eAction2 = getMockEventAction(layer, "second 0", "second 1");
+        EventAction eAction3 = getMockEventAction(layer, "second 0", "second 3");
+        event.addAction(eAction1);
+        event.addAction(eAction2);
+        event.addAction(eAction3);
+
+        event.getRunningItems(0L);
+        assert event.getRunningCount() == 3;
+
+        ((PulseOverTimeAction) eAction2.getAction()).setDone(true);
+        event.cleanDone();
+
+        assert event.getRunningCount() == 2;
+        assert event.getRunningItem(0) == eAction1;
+        assert event.getRunningItem(1) == eAction3;
+        assert !event.getRunningItems(0L).contains(eAction2);
+    }
+
     @Test
     public void testIsDone() {
         Jao jao = new Jao();
@@ -1,9 +1,23 @@
 package com.danodic.jao.extractor;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import com.danodic.jao.exceptions.CannotLoadJaoFileContentException;
 import com.danodic.jao.exceptions.CannotLoadJaoFileException;
@@ -11,6 +25,7 @@ import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
 import com.danodic.jao.exceptions.UnknownJaoFileFormatExcepton;
 import com.danodic.jao.support.Defaults;
 
+import org.apache.commons.io.IOUtils;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -50,4 +65,442 @@ public class ExtractorTest {
         extractor.getData("jao.nope");        
     }
 
+    @DataProvider
+    public Object[][] provideLazyConfigurations() {
+        return new Object[][] {
+            new Object[] { new ExtractorConfiguration().setLazy(true) },
+            new Object[] { new ExtractorConfiguration().setLazy(true).setCacheSize(1024 * 1024) },
+            new Object[] { new ExtractorConfiguration().setLazy(true).setKeepOpen(false) }
+        };
+    }
+
+    /**
+     * Lazy extractors must return the same data as the eager ones.
+     */
+    @Test(dataProvider = "provideLazyConfigurations")
+    public void testLazyZipExtractor(ExtractorConfiguration configuration)
+            throws CannotLoadJaoFileException, CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton,
+            ContentFileDoesNotExistException {
+        IExtractor eager = ExtractorFactory.getExtractor(Defaults.SAMPLE_ZIP);
+        try (ZipExtractor lazy = (ZipExtractor) ExtractorFactory.getExtractor(Defaults.SAMPLE_ZIP, configuration)) {
+            assert lazy.getJson().equals(eager.getJson());
+            assert Arrays.equals(lazy.getData("jao.png"), eager.getData("jao.png"));
+            assert Arrays.equals(lazy.getData("subfolder/jao2.png"), eager.getData("subfolder/jao2.png"));
+            assert Arrays.equals(lazy.getData("jao.png"), eager.getData("jao.png"));
+        }
+    }
+
+    @DataProvider
+    public Object[][] provideFolderConfigurations() {
+        return new Object[][] {
+            new Object[] { new ExtractorConfiguration() },
+            new Object[] { new ExtractorConfiguration().setLazy(true) }
+        };
+    }
+
+    /**
+     * Symbolic links to files and folders must be followed, including a link
+     * to the folder itself.
+     */
+    @Test(dataProvider = "provideFolderConfigurations")
+    public void testFolderSymbolicLinks(ExtractorConfiguration configuration) throws IOException,
+            CannotLoadJaoFileException, CannotLoadJaoFileContentException, ContentFileDoesNotExistException {
+        Path sample = Paths.get(Defaults.SAMPLE_FOLDER).toAbsolutePath();
+        Path temp = Files.createTempDirectory("jao");
+        try {
+            Path folder = Files.createDirectory(temp.resolve("folder"));
+            Files.copy(sample.resolve("jao.json"), folder.resolve("jao.json"));
+            Files.createSymbolicLink(folder.resolve("jao.png"), sample.resolve("jao.png"));
+            Files.createSymbolicLink(folder.resolve("subfolder"), sample.resolve("subfolder"));
+            Path link = Files.createSymbolicLink(temp.resolve("link"), folder);
+
+            byte[] expected = Files.readAllBytes(Paths.get(Defaults.SAMPLE_IMAGE_IN_FILE));
+            for (Path root : Arrays.asList(folder, link)) {
+                FolderExtractor extractor = new FolderExtractor(root.toString(), configuration);
+                assert extractor.getJson() != null;
+                assert Arrays.equals(extractor.getData("jao.png"), expected);
+                assert Arrays.equals(extractor.getData("subfolder/jao2.png"), expected);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(temp)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Test(expectedExceptions = ContentFileDoesNotExistException.class)
+    public void testLazyContentFileDoesNotExistException()
+            throws CannotLoadJaoFileException, CannotLoadJaoFileContentException, ContentFileDoesNotExistException {
+        try (ZipExtractor lazy = new ZipExtractor(Defaults.SAMPLE_ZIP, new ExtractorConfiguration().setLazy(true))) {
+            lazy.getData("jao.nope");
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testLazyClosed()
+            throws CannotLoadJaoFileException, CannotLoadJaoFileContentException, ContentFileDoesNotExistException {
+        ZipExtractor lazy = new ZipExtractor(Defaults.SAMPLE_ZIP, new ExtractorConfiguration().setLazy(true));
+        lazy.close();
+        lazy.getData("jao.png");
+    }
+
+    /**
+     * The cache must drop the least recently used files to stay within its
+     * size, and must not keep files bigger than itself.
+     */
+    @Test
+    public void testContentCache() {
+        ContentCache cache = new ContentCache(10);
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[4]);
+        cache.get("a");
+        cache.put("c", new byte[4]);
+        assert cache.size() == 8;
+        assert cache.get("a") != null;
+        assert cache.get("b") == null;
+        assert cache.get("c") != null;
+
+        cache.put("d", new byte[11]);
+        assert cache.get("d") == null;
+        assert cache.size() == 8;
+
+        // A file too big for the cache must replace the one it held before
+        cache.put("c", new byte[11]);
+        assert cache.get("c") == null;
+        assert cache.size() == 4;
+    }
+
+    /**
+     * With LFU the cache must drop the least used files, and among them the
+     * least recently used, while counting hits, misses and evictions.
+     */
+    @Test
+    public void testContentCacheLfu() {
+        ContentCache cache = new ContentCache(12, EvictionPolicy.LFU);
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[4]);
+        cache.put("c", new byte[4]);
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        cache.get("c");
+        cache.get("b");
+        cache.put("d", new byte[4]);
+        assert cache.get("c") == null;
+        assert cache.get("a") != null;
+        assert cache.get("b") != null;
+
+        cache.put("e", new byte[4]);
+        assert cache.get("d") == null;
+        assert cache.size() == 12;
+        assert cache.getHits() == 7;
+        assert cache.getMisses() == 2;
+        assert cache.getEvictions() == 2;
+    }
+
+    /**
+     * Files dropped from the cache must be loaded again from the wrapped
+     * extractor, keeping the cache within its budget.
+     */
+    @Test
+    public void testCachingExtractor() throws CannotLoadJaoFileException, CannotLoadJaoFileContentException,
+            UnknownJaoFileFormatExcepton, ContentFileDoesNotExistException, IOException {
+        IExtractor zip = ExtractorFactory.getExtractor(Defaults.SAMPLE_ZIP,
+                new ExtractorConfiguration().setLazy(true));
+        byte[] image = Files.readAllBytes(Paths.get(Defaults.SAMPLE_IMAGE_IN_FILE));
+
+        try (CachingExtractor extractor = new CachingExtractor(zip, image.length + image.length / 2,
+                EvictionPolicy.LRU)) {
+            assert extractor.getJson().equals(zip.getJson());
+            assert extractor.getFilename().equals(zip.getFilename());
+
+            byte[] first = extractor.getData("jao.png");
+            assert Arrays.equals(first, image);
+            assert extractor.getData("jao.png") == first;
+
+            assert Arrays.equals(extractor.getData("subfolder/jao2.png"), image);
+            assert extractor.getCache().size() == image.length;
+            assert extractor.getData("jao.png") != first;
+
+            ContentCache cache = extractor.getCache();
+            assert cache.getHits() == 1;
+            assert cache.getMisses() == 3;
+            assert cache.getEvictions() == 2;
+
+            // Streams and channels must not change the counters
+            try (InputStream stream = extractor.getStream("subfolder/jao2.png")) {
+                assert Arrays.equals(IOUtils.toByteArray(stream), image);
+            }
+            try (SeekableByteChannel channel = extractor.getChannel("jao.png")) {
+                assert channel.size() == image.length;
+            }
+            assert cache.getHits() == 1;
+            assert cache.getMisses() == 3;
+        }
+    }
+
+    /**
+     * Extractors sharing a cache must not see each other's files, and closing
+     * one of them must drop only its own files.
+     */
+    @Test
+    public void testCachingExtractorSharedCache() throws CannotLoadJaoFileException,
+            CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton, ContentFileDoesNotExistException,
+            IOException {
+        ContentCache cache = new ContentCache(1024 * 1024);
+        CachingExtractor folder = new CachingExtractor(ExtractorFactory.getExtractor(Defaults.SAMPLE_FOLDER), cache);
+        CachingExtractor zip = new CachingExtractor(ExtractorFactory.getExtractor(Defaults.SAMPLE_ZIP), cache);
+
+        int length = folder.getData("jao.png").length;
+        zip.getData("jao.png");
+        assert cache.getMisses() == 2;
+        assert cache.size() == 2L * length;
+
+        folder.close();
+        assert cache.size() == length;
+        zip.getData("jao.png");
+        assert cache.getHits() == 1;
+        zip.close();
+        assert cache.size() == 0;
+    }
+
+    /**
+     * Creates a zip with the sample json compressed and the sample image stored
+     * without compression.
+     */
+    private static Path createStoredZip() throws IOException {
+        byte[] json = Files.readAllBytes(Paths.get(Defaults.SAMPLE_JSON_IN_FILE));
+        byte[] image = Files.readAllBytes(Paths.get(Defaults.SAMPLE_IMAGE_IN_FILE));
+
+        Path zip = Files.createTempFile("jao", ".jao");
+        try (OutputStream file = Files.newOutputStream(zip); ZipOutputStream out = new ZipOutputStream(file)) {
+            out.putNextEntry(new ZipEntry("jao.json"));
+            out.write(json);
+            out.closeEntry();
+
+            ZipEntry stored = new ZipEntry("jao.png");
+            CRC32 crc = new CRC32();
+            crc.update(image);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(image.length);
+            stored.setCompressedSize(image.length);
+            stored.setCrc(crc.getValue());
+            out.putNextEntry(stored);
+            out.write(image);
+            out.closeEntry();
+        }
+        return zip;
+    }
+
+    /**
+     * Stored entries must come straight from the mapped file, and compressed
+     * entries must be inflated.
+     */
+    @Test
+    public void testMappedZipExtractor() throws IOException, CannotLoadJaoFileException,
+            CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton, ContentFileDoesNotExistException {
+        Path zip = createStoredZip();
+        try (MappedZipExtractor extractor = (MappedZipExtractor) ExtractorFactory.getExtractor(zip.toString(),
+                new ExtractorConfiguration().setMemoryMapped(true))) {
+            byte[] expectedImage = Files.readAllBytes(Paths.get(Defaults.SAMPLE_IMAGE_IN_FILE));
+            String expectedJson = new String(Files.readAllBytes(Paths.get(Defaults.SAMPLE_JSON_IN_FILE)),
+                    StandardCharsets.UTF_8);
+
+            assert extractor.getJson().equals(expectedJson);
+            assert extractor.isStored("jao.png");
+            assert !extractor.isStored("jao.json");
+
+            ByteBuffer image = extractor.getBuffer("jao.png");
+            assert image.isDirect();
+            assert image.isReadOnly();
+            assert image.remaining() == expectedImage.length;
+            assert Arrays.equals(extractor.getData("jao.png"), expectedImage);
+        } finally {
+            Files.delete(zip);
+        }
+    }
+
+    @Test
+    public void testMappedZipExtractorDeflated() throws CannotLoadJaoFileException,
+            CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton, ContentFileDoesNotExistException {
+        IExtractor eager = ExtractorFactory.getExtractor(Defaults.SAMPLE_ZIP);
+        try (MappedZipExtractor mapped = new MappedZipExtractor(Defaults.SAMPLE_ZIP)) {
+            assert mapped.getJson().equals(eager.getJson());
+            assert Arrays.equals(mapped.getData("jao.png"), eager.getData("jao.png"));
+            assert Arrays.equals(mapped.getData("subfolder/jao2.png"), eager.getData("subfolder/jao2.png"));
+        }
+    }
+
+    /**
+     * The default buffer must hold the same bytes as getData() and must not
+     * allow them to be changed.
+     */
+    @Test
+    public void testGetBuffer() throws CannotLoadJaoFileException, CannotLoadJaoFileContentException,
+            UnknownJaoFileFormatExcepton, ContentFileDoesNotExistException {
+        IExtractor extractor = ExtractorFactory.getExtractor(Defaults.SAMPLE_FOLDER);
+        ByteBuffer buffer = extractor.getBuffer("jao.png");
+        assert buffer.isReadOnly();
+        assert buffer.equals(ByteBuffer.wrap(extractor.getData("jao.png")));
+    }
+
+    @DataProvider
+    public Object[][] provideStreamingExtractors() throws CannotLoadJaoFileException,
+            CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton {
+        return new Object[][] {
+            new Object[] { ExtractorFactory.getExtractor(Defaults.SAMPLE_FOLDER) },
+            new Object[] { ExtractorFactory.getExtractor(Defaults.SAMPLE_FOLDER,
+                    new ExtractorConfiguration().setLazy(true)) },
+            new Object[] { ExtractorFactory.getExtractor(Defaults.SAMPLE_ZIP) },
+            new Object[] { ExtractorFactory.getExtractor(Defaults.SAMPLE_ZIP,
+                    new ExtractorConfiguration().setLazy(true)) },
+            new Object[] { ExtractorFactory.getExtractor(Defaults.SAMPLE_ZIP,
+                    new ExtractorConfiguration().setLazy(true).setKeepOpen(false)) },
+            new Object[] { ExtractorFactory.getExtractor(Defaults.SAMPLE_ZIP,
+                    new ExtractorConfiguration().setMemoryMapped(true)) }
+        };
+    }
+
+    /**
+     * Streams and channels must return the same bytes as getData(), and the
+     * channels must be able to read any range, including going backwards.
+     */
+    @Test(dataProvider = "provideStreamingExtractors")
+    public void testStreams(IExtractor extractor) throws IOException, ContentFileDoesNotExistException {
+        byte[] expected = Files.readAllBytes(Paths.get(Defaults.SAMPLE_IMAGE_IN_FILE));
+
+        try (InputStream stream = extractor.getStream("subfolder/jao2.png")) {
+            assert Arrays.equals(IOUtils.toByteArray(stream), expected);
+        }
+
+        try (SeekableByteChannel channel = extractor.getChannel("jao.png")) {
+            assert channel.size() == expected.length;
+
+            ByteBuffer range = ByteBuffer.allocate(50);
+            channel.position(20000);
+            while (range.hasRemaining() && channel.read(range) > 0) {
+            }
+            assert Arrays.equals(range.array(), Arrays.copyOfRange(expected, 20000, 20050));
+            assert channel.position() == 20050;
+
+            range.clear();
+            channel.position(10);
+            while (range.hasRemaining() && channel.read(range) > 0) {
+            }
+            assert Arrays.equals(range.array(), Arrays.copyOfRange(expected, 10, 60));
+
+            channel.position(expected.length);
+            assert channel.read(ByteBuffer.allocate(1)) == -1;
+
+            // Positions past the end are kept, and reading from them ends
+            channel.position(expected.length + 100L);
+            assert channel.position() == expected.length + 100L;
+            assert channel.read(ByteBuffer.allocate(1)) == -1;
+        }
+
+        if (extractor instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) extractor).close();
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = ContentFileDoesNotExistException.class)
+    public void testStreamContentFileDoesNotExistException() throws CannotLoadJaoFileException,
+            CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton, ContentFileDoesNotExistException {
+        ExtractorFactory.getExtractor(Defaults.SAMPLE_FOLDER).getStream("jao.nope");
+    }
+
+    /**
+     * Lazy folders must index the same files as the eager ones, with the same
+     * names, and read them only when asked.
+     */
+    @Test(dataProvider = "provideLazyConfigurations")
+    public void testLazyFolderExtractor(ExtractorConfiguration configuration)
+            throws CannotLoadJaoFileException, CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton,
+            ContentFileDoesNotExistException {
+        IExtractor eager = ExtractorFactory.getExtractor(Defaults.SAMPLE_FOLDER);
+        IExtractor lazy = ExtractorFactory.getExtractor(Defaults.SAMPLE_FOLDER, configuration);
+        assert lazy.getJson().equals(eager.getJson());
+        assert Arrays.equals(lazy.getData("jao.png"), eager.getData("jao.png"));
+        assert Arrays.equals(lazy.getData("subfolder/jao2.png"), eager.getData("subfolder/jao2.png"));
+        assert Arrays.equals(lazy.getData("jao.png"), eager.getData("jao.png"));
+    }
+
+    @Test(expectedExceptions = ContentFileDoesNotExistException.class)
+    public void testLazyFolderContentFileDoesNotExistException() throws CannotLoadJaoFileException,
+            CannotLoadJaoFileContentException, ContentFileDoesNotExistException {
+        new FolderExtractor(Defaults.SAMPLE_FOLDER, new ExtractorConfiguration().setLazy(true)).getData("jao.nope");
+    }
+
+    @DataProvider
+    public Object[][] provideParallelism() {
+        return new Object[][] {
+            new Object[] { Defaults.SAMPLE_FOLDER, 1 },
+            new Object[] { Defaults.SAMPLE_FOLDER, 4 },
+            new Object[] { Defaults.SAMPLE_ZIP, 1 },
+            new Object[] { Defaults.SAMPLE_ZIP, 2 },
+            new Object[] { Defaults.SAMPLE_ZIP, 8 }
+        };
+    }
+
+    /**
+     * Loading the files in parallel must give the same data as loading them
+     * one at a time.
+     */
+    @Test(dataProvider = "provideParallelism")
+    public void testParallelLoading(String filename, int parallelism) throws CannotLoadJaoFileException,
+            CannotLoadJaoFileContentException, UnknownJaoFileFormatExcepton, ContentFileDoesNotExistException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            IExtractor expected = ExtractorFactory.getExtractor(filename);
+            IExtractor extractor = ExtractorFactory.getExtractor(filename,
+                    new ExtractorConfiguration().setExecutor(executor).setParallelism(parallelism));
+            assert extractor.getJson().equals(expected.getJson());
+            assert Arrays.equals(extractor.getData("jao.png"), expected.getData("jao.png"));
+            assert Arrays.equals(extractor.getData("subfolder/jao2.png"), expected.getData("subfolder/jao2.png"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Identical files must share the same array, both inside a single jao file
+     * and across the extractors using the same store.
+     */
+    @Test
+    public void testContentStore() throws CannotLoadJaoFileException, CannotLoadJaoFileContentException,
+            UnknownJaoFileFormatExcepton, ContentFileDoesNotExistException {
+        ContentStore store = new ContentStore();
+        ExtractorConfiguration configuration = new ExtractorConfiguration().setContentStore(store);
+
+        IExtractor folder = ExtractorFactory.getExtractor(Defaults.SAMPLE_FOLDER, configuration);
+        assert folder.getData("jao.png") == folder.getData("subfolder/jao2.png");
+        assert store.getHits() == 1;
+
+        IExtractor zip = ExtractorFactory.getExtractor(Defaults.SAMPLE_ZIP, configuration.setLazy(true));
+        assert zip.getData("jao.png") == folder.getData("jao.png");
+        assert store.size() == 1;
+        assert store.getSavedBytes() == 2L * folder.getData("jao.png").length;
+    }
+
+    @Test
+    public void testContentStoreIntern() {
+        ContentStore store = new ContentStore();
+        byte[] first = new byte[] { 1, 2, 3 };
+        byte[] second = new byte[] { 1, 2, 3 };
+        byte[] other = new byte[] { 3, 2, 1 };
+
+        assert store.intern(first) == first;
+        assert store.intern(second) == first;
+        assert store.intern(other) == other;
+        assert store.size() == 2;
+        assert store.getHits() == 1;
+        assert store.getSavedBytes() == 3;
+    }
+
 }
\ No newline at end of file
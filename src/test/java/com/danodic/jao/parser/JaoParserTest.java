@@ -1,8 +1,19 @@
 package com.danodic.jao.parser;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.danodic.jao.action.ActionFactory;
+import com.danodic.jao.compiler.JaoCompiler;
+import com.danodic.jao.core.Jao;
+import com.danodic.jao.core.JaoLayer;
+import com.danodic.jao.core.JaoTemplate;
+import com.danodic.jao.core.LayerTemplate;
 
 import com.danodic.jao.exceptions.CannotFindJaoActionException;
 import com.danodic.jao.exceptions.CannotFindJaoInitializerException;
@@ -10,10 +21,16 @@ import com.danodic.jao.exceptions.CannotFindJaoLibraryException;
 import com.danodic.jao.exceptions.CannotInstantiateJaoActionException;
 import com.danodic.jao.exceptions.CannotInstantiateJaoRenderer;
 import com.danodic.jao.exceptions.ContentFileDoesNotExistException;
+import com.danodic.jao.extractor.IExtractor;
 import com.danodic.jao.support.Defaults;
 import com.danodic.jao.support.renderers.BadRenderer;
 import com.danodic.jao.support.renderers.TestRenderer;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
 import org.testng.annotations.Test;
 
 public class JaoParserTest {
@@ -71,4 +88,192 @@ public class JaoParserTest {
         JaoParser.parseJson(json, null, TestRenderer.class);
     }
 
+    /**
+     * Creates a json with many copies of the layer in the sample file, each one
+     * with a different data type, so the order of the layers can be checked.
+     */
+    private static String createLayeredJson(int count) throws IOException {
+        String sample = new String(Files.readAllBytes(Paths.get(Defaults.SAMPLE_JSON)));
+        JsonObject root = JsonParser.parseString(sample).getAsJsonObject();
+        JsonObject layer = root.getAsJsonArray("layers").get(0).getAsJsonObject();
+
+        JsonArray layers = new JsonArray();
+        for (int i = 0; i < count; i++) {
+            JsonObject copy = layer.deepCopy();
+            copy.getAsJsonObject("dataType").addProperty("type", "sprite" + i);
+            layers.add(copy);
+        }
+        root.add("layers", layers);
+        return root.toString();
+    }
+
+    @Test
+    public void testParseJsonParallel() throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer,
+            CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
+            IOException, ContentFileDoesNotExistException {
+        String json = createLayeredJson(16);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Jao serial = JaoParser.parseJson(json, null, TestRenderer.class);
+            Jao parallel = JaoParser.parseJson(json, null, TestRenderer.class, executor);
+            assert parallel.getLayers().size() == 16;
+            for (int i = 0; i < 16; i++) {
+                assert parallel.getLayers().get(i).getDataType().getType().equals("sprite" + i);
+                assert parallel.getLayers().get(i).getDataType().getAttributes()
+                        .equals(serial.getLayers().get(i).getDataType().getAttributes());
+            }
+
+            JaoTemplate template = JaoParser.parseTemplate(json, null, TestRenderer.class, executor);
+            List<LayerTemplate> layers = template.getLayers();
+            assert layers.size() == 16;
+            for (int i = 0; i < 16; i++) {
+                assert layers.get(i).getDataType().getType().equals("sprite" + i);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Errors raised while building a layer in the executor must be thrown with
+     * their original type.
+     */
+    @Test(expectedExceptions = CannotFindJaoLibraryException.class)
+    public void testParseJsonParallelException()
+            throws CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
+            CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer, IOException, ContentFileDoesNotExistException {
+        String json = new String(Files.readAllBytes(Paths.get(Defaults.SAMPLE_WRONG_LIB_NAME_ACTION)));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            JaoParser.parseJson(json, null, TestRenderer.class, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The parallel mode must also be available when parsing from an extractor,
+     * both from the json and from the binary timeline.
+     */
+    @Test
+    public void testParseExtractorParallel() throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer,
+            CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
+            IOException, ContentFileDoesNotExistException {
+        String json = createLayeredJson(8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (byte[] binary : new byte[][] { null, JaoCompiler.compile(json) }) {
+                IExtractor extractor = new IExtractor() {
+                    @Override
+                    public byte[] getData(String filename) throws ContentFileDoesNotExistException {
+                        throw new ContentFileDoesNotExistException(filename);
+                    }
+
+                    @Override
+                    public String getJson() {
+                        return json;
+                    }
+
+                    @Override
+                    public byte[] getBinary() {
+                        return binary;
+                    }
+
+                    @Override
+                    public String getFilename() {
+                        return "memory";
+                    }
+                };
+
+                Jao jao = JaoParser.parse(extractor, TestRenderer.class, executor);
+                JaoTemplate template = JaoParser.parseTemplate(extractor, TestRenderer.class, executor);
+                assert jao.getLayers().size() == 8;
+                assert template.getLayers().size() == 8;
+                for (int i = 0; i < 8; i++) {
+                    assert jao.getLayers().get(i).getDataType().getType().equals("sprite" + i);
+                    assert template.getLayers().get(i).getDataType().getType().equals("sprite" + i);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Once a layer fails, the layers after it must not be built.
+     */
+    @Test
+    public void testParseJsonParallelCancel() throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer,
+            CannotFindJaoInitializerException, CannotFindJaoActionException, IOException,
+            ContentFileDoesNotExistException, CannotFindJaoLibraryException {
+        String json = createLayeredJson(16);
+        JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+        String wrong = new String(Files.readAllBytes(Paths.get(Defaults.SAMPLE_WRONG_LIB_NAME_ACTION)));
+        root.getAsJsonArray("layers").set(0,
+                JsonParser.parseString(wrong).getAsJsonObject().getAsJsonArray("layers").get(0));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ActionFactory.setCollectStatistics(true);
+        try {
+            ActionFactory.resetStatistics();
+            JaoParser.parseJson(createLayeredJson(1), null, TestRenderer.class);
+            long perLayer = ActionFactory.getInstantiationCount();
+
+            ActionFactory.resetStatistics();
+            try {
+                JaoParser.parseJson(root.toString(), null, TestRenderer.class, executor);
+                assert false;
+            } catch (CannotFindJaoLibraryException e) {
+                // The first layer uses a library that does not exist
+            }
+            assert ActionFactory.getInstantiationCount() < perLayer;
+        } finally {
+            ActionFactory.setCollectStatistics(false);
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The streaming parser must not depend on the order of the keys, so the
+     * data type is moved after the events and the name of each event after its
+     * actions.
+     */
+    @Test
+    public void testParseJsonReader() throws CannotInstantiateJaoActionException, CannotInstantiateJaoRenderer,
+            CannotFindJaoLibraryException, CannotFindJaoInitializerException, CannotFindJaoActionException,
+            IOException, ContentFileDoesNotExistException {
+        String sample = new String(Files.readAllBytes(Paths.get(Defaults.SAMPLE_JSON)));
+        JsonObject root = JsonParser.parseString(sample).getAsJsonObject();
+        JsonObject layer = root.getAsJsonArray("layers").get(0).getAsJsonObject();
+
+        JsonArray events = new JsonArray();
+        for (JsonElement element : layer.getAsJsonArray("events")) {
+            JsonObject event = new JsonObject();
+            event.add("actions", element.getAsJsonObject().get("actions"));
+            event.add("name", element.getAsJsonObject().get("name"));
+            events.add(event);
+        }
+        JsonObject reordered = new JsonObject();
+        reordered.add("events", events);
+        reordered.add("dataType", layer.get("dataType"));
+        JsonArray layers = new JsonArray();
+        layers.add(reordered);
+        root.add("layers", layers);
+
+        Jao expected = JaoParser.parseJson(sample, null, TestRenderer.class, Runnable::run);
+        Jao jao = JaoParser.parseJson(new StringReader(root.toString()), null, TestRenderer.class);
+
+        assert jao.getLayers().size() == 1;
+        JaoLayer expectedLayer = expected.getLayers().get(0);
+        JaoLayer jaoLayer = jao.getLayers().get(0);
+        assert jaoLayer.getDataType().getType().equals(expectedLayer.getDataType().getType());
+        assert jaoLayer.getDataType().getAttributes().equals(expectedLayer.getDataType().getAttributes());
+        assert jaoLayer.getEvents().keySet().equals(expectedLayer.getEvents().keySet());
+        for (String name : expectedLayer.getEvents().keySet()) {
+            assert jaoLayer.getEvents().get(name).getAllActionEvents().size()
+                    == expectedLayer.getEvents().get(name).getAllActionEvents().size();
+        }
+        assert jaoLayer.getEvent() == jaoLayer.getEvents().get("default");
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.danodic.jao.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import com.danodic.jao.action.ActionFactory;
+import com.danodic.jao.action.processor.ActionProcessor;
+
+/**
+ * Compiles classes while the tests run, for the tests that need classes
+ * outside of the test classpath, such as the ones of a library built without
+ * the ActionProcessor.
+ */
+public class Sources {
+
+    private Sources() {
+    }
+
+    /**
+     * Will compile a single class into a folder, which is also in the
+     * classpath of the compiler, as in an incremental build.
+     *
+     * @param output Folder where the class is written.
+     * @param process Whether the ActionProcessor should run.
+     * @param className Full name of the class.
+     * @param code Source code of the class.
+     */
+    public static void compile(Path output, boolean process, String className, String code) throws IOException {
+        Path sources = Files.createTempDirectory("jao-sources");
+        Path source = sources.resolve(className.replace('.', '/') + ".java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, code.getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(output);
+
+        String classpath = getJaoClasses() + File.pathSeparator + output;
+        List<String> arguments = new ArrayList<>(Arrays.asList("-d", output.toString(), "-classpath", classpath));
+        if (process) {
+            arguments.addAll(Arrays.asList("-processor", ActionProcessor.class.getName()));
+        } else {
+            arguments.add("-proc:none");
+        }
+        arguments.add(source.toString());
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IOException("Could not compile " + className);
+        }
+    }
+
+    /**
+     * Will return the source of an initializer that does nothing, in the
+     * "sample" package.
+     */
+    public static String initializer(String className, String library, String name) {
+        return String.format("package sample;%n"
+                + "import com.danodic.jao.action.Action;%n"
+                + "import com.danodic.jao.action.IInitializer;%n"
+                + "import com.danodic.jao.core.JaoLayer;%n"
+                + "import com.danodic.jao.model.ActionModel;%n"
+                + "@Action(library = \"%s\", name = \"%s\")%n"
+                + "public class %s implements IInitializer {%n"
+                + "    public void run(JaoLayer layer) {}%n"
+                + "    public void loadModel(ActionModel model) {}%n"
+                + "    public IInitializer clone() { return new %s(); }%n"
+                + "}%n", library, name, className, className);
+    }
+
+    private static Path getJaoClasses() throws IOException {
+        try {
+            return Paths.get(ActionFactory.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.danodic.jao.support.libraries;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.danodic.jao.action.IAction;
+import com.danodic.jao.action.IActionLibrary;
+import com.danodic.jao.action.IInitializer;
+import com.danodic.jao.support.libraries.actions.GenericAction;
+import com.danodic.jao.support.libraries.initializers.GenericInitializer;
+
+/**
+ * A library published through the ServiceLoader instead of the @Action
+ * annotation. Counts how many times its classes have been requested.
+ */
+public class ProvidedLibrary implements IActionLibrary {
+
+    public static final String NAME = "jao.provided";
+
+    private static int resolved = 0;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Map<String, Class<? extends IAction>> getActions() {
+        resolved++;
+        Map<String, Class<? extends IAction>> actions = new HashMap<>();
+        actions.put("Generic", GenericAction.class);
+        return actions;
+    }
+
+    @Override
+    public Map<String, Class<? extends IInitializer>> getInitializers() {
+        Map<String, Class<? extends IInitializer>> initializers = new HashMap<>();
+        initializers.put("Generic", GenericInitializer.class);
+        return initializers;
+    }
+
+    public static int getResolved() {
+        return resolved;
+    }
+
+}
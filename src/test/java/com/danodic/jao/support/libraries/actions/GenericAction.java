@@ -65,7 +65,16 @@ public class GenericAction implements IAction {
 
     @Override
     public IAction clone() {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        try {
+            GenericAction clone = getClass().getConstructor().newInstance();
+            if (model != null) {
+                clone.loadModel(model);
+            }
+            clone.loop = loop;
+            return clone;
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException(e);
+        }
     }
 
 }
\ No newline at end of file
@@ -48,7 +48,14 @@ public class GenericInitializer implements IInitializer {
 
     @Override
     public IInitializer clone() {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        try {
+            GenericInitializer clone = getClass().getConstructor().newInstance();
+            clone.loadModel(model);
+            clone.outStream = outStream;
+            return clone;
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException(e);
+        }
     }
     
 }
\ No newline at end of file
@@ -25,7 +25,7 @@ public class TestRenderer implements IRenderer {
 
     @Override
     public IRenderer clone() {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        return new TestRenderer();
     }
 
     @Override
@@ -0,0 +1,82 @@
+package com.danodic.jao.time;
+
+import com.danodic.jao.core.Jao;
+
+import org.testng.annotations.Test;
+
+public class FrameClockTest {
+
+    private static final long MILLI = IClock.NANOS_PER_MILLISECOND;
+
+    /**
+     * Each instance clock must count from the frame it was first read, and
+     * must only move when the frame clock ticks.
+     */
+    @Test
+    public void testNow() {
+        FrameClock frameClock = new FrameClock();
+        long origin = frameClock.getFrameNanos();
+
+        IClock first = frameClock.newClock();
+        assert first.now() == 0L;
+
+        frameClock.tick(origin + 100L * MILLI);
+        IClock second = frameClock.newClock();
+        assert second.now() == 0L;
+        assert first.now() == 100L;
+
+        frameClock.tick(origin + 250L * MILLI);
+        assert first.now() == 250L;
+        assert first.now() == 250L;
+        assert second.now() == 150L;
+        assert second.nowNanos() == 150L * MILLI;
+        assert first.getLastFrameDelta() == 150L;
+        assert second.getLastFrameDeltaNanos() == 150L * MILLI;
+    }
+
+    @Test
+    public void testReset() {
+        FrameClock frameClock = new FrameClock();
+        long origin = frameClock.getFrameNanos();
+        IClock clock = frameClock.newClock();
+        clock.now();
+
+        frameClock.tick(origin + 100L * MILLI);
+        clock.reset();
+        assert clock.now() == 0L;
+
+        frameClock.tick(origin + 120L * MILLI);
+        assert clock.now() == 20L;
+    }
+
+    /**
+     * Cloned instances must keep following the same frame clock.
+     */
+    @Test
+    public void testClone() {
+        FrameClock frameClock = new FrameClock();
+        long origin = frameClock.getFrameNanos();
+
+        Jao jao = new Jao();
+        jao.setClock(frameClock.newClock());
+        jao.render();
+
+        frameClock.tick(origin + 100L * MILLI);
+        Jao clone = jao.clone();
+        jao.render();
+        clone.render();
+        assert jao.getElapsed() == 100L;
+        assert clone.getElapsed() == 100L;
+    }
+
+    @Test
+    public void testGetLastFrameTime() {
+        long before = System.currentTimeMillis();
+        FrameClock frameClock = new FrameClock();
+        IClock clock = frameClock.newClock();
+
+        frameClock.tick(frameClock.getFrameNanos() + 1000L * MILLI);
+        assert clock.getLastFrameTime() >= before + 1000L;
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.danodic.jao.time;
+
+import org.testng.annotations.Test;
+
+public class MonotonicClockTest {
+
+    @Test
+    public void testNow() throws InterruptedException {
+        MonotonicClock clock = new MonotonicClock();
+        long before = clock.now();
+        Thread.sleep(20);
+
+        long now = clock.now();
+        Thread.sleep(20);
+
+        long after = clock.now();
+
+        assert before == 0L;
+        assert now >= 20L;
+        assert now < after;
+    }
+
+    @Test
+    public void testNowNanos() throws InterruptedException {
+        MonotonicClock clock = new MonotonicClock();
+        assert clock.nowNanos() == 0L;
+        Thread.sleep(5);
+
+        long nanos = clock.nowNanos();
+        assert nanos >= 5L * IClock.NANOS_PER_MILLISECOND;
+        assert clock.getLastFrameDeltaNanos() == nanos;
+        assert clock.getLastFrameDelta() == nanos / IClock.NANOS_PER_MILLISECOND;
+    }
+
+    @Test
+    public void testReset() throws InterruptedException {
+        MonotonicClock clock = new MonotonicClock();
+        clock.now();
+        Thread.sleep(20);
+        assert clock.now() >= 20L;
+        assert clock.getLastFrameDelta() >= 20L;
+
+        long before = System.currentTimeMillis();
+        clock.reset();
+        assert clock.now() == 0L;
+        assert clock.getLastFrameDelta() == 0L;
+        assert clock.getLastFrameTime() >= before;
+    }
+
+    @Test
+    public void testClone() throws InterruptedException {
+        MonotonicClock clock = new MonotonicClock();
+        clock.now();
+        Thread.sleep(20);
+
+        IClock clone = clock.clone();
+        assert clone.now() >= 20L;
+    }
+
+    /**
+     * Clocks that only implement the millisecond methods must still provide
+     * nanoseconds.
+     */
+    @Test
+    public void testDefaultNanos() {
+        IClock clock = new StandardClock();
+        assert clock.nowNanos() == 0L;
+        assert clock.getLastFrameDeltaNanos() == 0L;
+    }
+
+}